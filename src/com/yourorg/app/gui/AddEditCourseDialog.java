@@ -177,8 +177,7 @@ public class AddEditCourseDialog extends JDialog {
             JOptionPane.showMessageDialog(this, "Course '" + name + "' updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         }
 
-        courseSaved = true;
-        mainFrame.refreshCourseList(); // Notify main frame to refresh course displays
+        courseSaved = true; // Course displays update themselves from the DataManager's change event
         dispose(); // Close the dialog
     }
 
@@ -15,6 +15,7 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.UncheckedIOException;
 
 public class AddEditResourceDialog extends JDialog {
 
@@ -29,6 +30,7 @@ public class AddEditResourceDialog extends JDialog {
     private JTextArea descriptionArea;
     private JComboBox<ResourceType> typeComboBox;
     private JTextField contentField; // For URL, file path, or brief text
+    private boolean contentUnreadable; // The stored content is then kept, see populateFields()
     private JButton saveButton;
     private JButton cancelButton;
 
@@ -147,7 +149,14 @@ public class AddEditResourceDialog extends JDialog {
             titleField.setText(resourceToEdit.getTitle());
             descriptionArea.setText(resourceToEdit.getDescription());
             typeComboBox.setSelectedItem(resourceToEdit.getType());
-            contentField.setText(resourceToEdit.getContent());
+            try {
+                contentField.setText(resourceToEdit.getContent());
+            } catch (UncheckedIOException e) {
+                // Not editable, so that saving does not replace the stored content with an empty field
+                contentUnreadable = true;
+                contentField.setText("(content could not be read)");
+                contentField.setEnabled(false);
+            }
         }
     }
 
@@ -182,7 +191,9 @@ public class AddEditResourceDialog extends JDialog {
             resourceToEdit.setTitle(title);
             resourceToEdit.setDescription(description);
             resourceToEdit.setType(type);
-            resourceToEdit.setContent(content);
+            if (!contentUnreadable) {
+                resourceToEdit.setContent(content);
+            }
             if (dataManager.updateResource(resourceToEdit)) { // This updates it within its course
                 savedResource = resourceToEdit;
                 JOptionPane.showMessageDialog(this, "Resource '" + title + "' updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
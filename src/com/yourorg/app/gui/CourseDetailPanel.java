@@ -13,6 +13,7 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
@@ -169,7 +170,7 @@ public class CourseDetailPanel extends JPanel {
     private void populateResourcesList() {
         resourcesListPanel.removeAll(); // Clear existing resource cards
 
-        List<Resource> resources = dataManager.getResourcesForCourse(currentCourse.getId());
+        List<Resource> resources = new ArrayList<>(dataManager.getResourcesForCourse(currentCourse.getId())); // Copied to sort
         resources.sort(Comparator.comparing(Resource::getTitle)); // Sort alphabetically by title
 
         if (resources.isEmpty()) {
@@ -255,8 +256,7 @@ public class CourseDetailPanel extends JPanel {
         AddEditCourseDialog dialog = new AddEditCourseDialog(mainFrame, dataManager, currentCourse);
         dialog.setVisible(true);
         if (dialog.isCourseSaved()) {
-            refreshData(); // Refresh this panel after edit
-            mainFrame.refreshCourseList(); // Refresh dashboard/courses list
+            refreshData(); // Refresh this panel after edit; the dashboard and courses list follow change events
         }
     }
 
@@ -266,10 +266,13 @@ public class CourseDetailPanel extends JPanel {
                 "Confirm Deletion", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            if (dataManager.deleteCourse(currentCourse.getId())) {
-                JOptionPane.showMessageDialog(this, "Course deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+            DataManager.CourseDeletion deletion = dataManager.deleteCourseCascade(currentCourse.getId());
+            if (deletion != null) {
+                JOptionPane.showMessageDialog(this,
+                        "Course deleted successfully.\nRemoved " + deletion.resourceCount + " resource(s) and "
+                                + deletion.timeLogCount + " review log(s).",
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
                 mainFrame.showCoursesList(); // Go back to the main courses list
-                mainFrame.refreshCourseList(); // Refresh all relevant lists
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to delete course.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -6,11 +6,14 @@
 package com.yourorg.app.gui;
 
 import com.yourorg.app.model.Course;
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.service.DataChangeEvent;
 import com.yourorg.app.service.DataManager;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
@@ -19,6 +22,10 @@ public class CoursesListPage extends JPanel {
     private DataManager dataManager;
     private MainApplicationFrame mainFrame;
     private JPanel coursesContainerPanel; // Panel to hold individual course cards
+    // The courses whose cards are shown, in display order. Card i and the spacer after it
+    // are components 2i and 2i+1 of coursesContainerPanel.
+    private final List<Course> shownCourses = new ArrayList<>();
+    private boolean stale; // Changes were missed while the page was hidden
 
     public CoursesListPage(DataManager dataManager, MainApplicationFrame mainFrame) {
         this.dataManager = dataManager;
@@ -64,9 +71,11 @@ public class CoursesListPage extends JPanel {
     }
 
     public void refreshData() {
+        stale = false;
         coursesContainerPanel.removeAll(); // Clear existing course cards
+        shownCourses.clear();
 
-        List<Course> allCourses = dataManager.getAllCourses();
+        List<Course> allCourses = new ArrayList<>(dataManager.getAllCourses()); // Immutable view; copied to sort
         allCourses.sort(Comparator.comparing(Course::getName)); // Sort alphabetically by name
 
         if (allCourses.isEmpty()) {
@@ -79,12 +88,72 @@ public class CoursesListPage extends JPanel {
             for (Course course : allCourses) {
                 coursesContainerPanel.add(createCourseCard(course));
                 coursesContainerPanel.add(Box.createVerticalStrut(10)); // Space between cards
+                shownCourses.add(course);
             }
         }
         coursesContainerPanel.revalidate();
         coursesContainerPanel.repaint();
     }
 
+    public void refreshIfStale() {
+        if (stale) {
+            refreshData();
+        }
+    }
+
+    /**
+     * Replaces only the card of the changed course. While the page is hidden, changes
+     * are not applied; the page is rebuilt once when it is shown again.
+     */
+    public void dataChanged(DataChangeEvent event) {
+        if (!isShowing()) {
+            stale = true;
+            return;
+        }
+        switch (event.kind) {
+            case RESOURCE_UPDATED:
+            case REVIEW_RECORDED:
+            case TIME_LOG_RECORDED:
+            case SCHEDULES_CHANGED:
+                break; // Nothing shown on the cards has changed
+            case DATA_LOADED:
+                refreshData();
+                break;
+            default: // Course added, updated or deleted, or its resource count changed
+                updateCourseCard(event.courseId);
+                break;
+        }
+    }
+
+    private void updateCourseCard(EntityId courseId) {
+        Course course = courseId != null ? dataManager.getCourseById(courseId) : null;
+        boolean wasEmpty = shownCourses.isEmpty();
+        for (int i = 0; i < shownCourses.size(); i++) {
+            if (shownCourses.get(i).getEntityId().equals(courseId)) {
+                shownCourses.remove(i);
+                coursesContainerPanel.remove(2 * i + 1);
+                coursesContainerPanel.remove(2 * i);
+                break;
+            }
+        }
+        if (wasEmpty || shownCourses.isEmpty()) {
+            refreshData(); // Switches between the "no courses" label and the cards
+            return;
+        }
+        if (course != null) {
+            // Its name may have changed, so it may belong somewhere else now
+            int position = 0;
+            while (position < shownCourses.size() && shownCourses.get(position).getName().compareTo(course.getName()) <= 0) {
+                position++;
+            }
+            shownCourses.add(position, course);
+            coursesContainerPanel.add(createCourseCard(course), 2 * position);
+            coursesContainerPanel.add(Box.createVerticalStrut(10), 2 * position + 1);
+        }
+        coursesContainerPanel.revalidate();
+        coursesContainerPanel.repaint();
+    }
+
     private JPanel createCourseCard(Course course) {
         JPanel card = new JPanel(new BorderLayout(15, 10));
         card.setBackground(Color.WHITE);
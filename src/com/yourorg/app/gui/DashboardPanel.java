@@ -6,8 +6,9 @@
 package com.yourorg.app.gui;
 
 import com.yourorg.app.model.Course;
+import com.yourorg.app.model.EntityId;
 import com.yourorg.app.model.Resource;
-import com.yourorg.app.model.TimeLog; // <-- ADD THIS LINE
+import com.yourorg.app.service.DataChangeEvent;
 import com.yourorg.app.service.DataManager;
 
 import javax.swing.*;
@@ -15,8 +16,11 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class DashboardPanel extends JPanel {
@@ -30,6 +34,9 @@ public class DashboardPanel extends JPanel {
     private JLabel lastReviewDateLabel;
     private JPanel coursesListPanel; // For displaying a few recent/important courses
     private JPanel dueResourcesPanel; // For displaying a few immediate due resources
+    private final Map<EntityId, JPanel> courseCards = new HashMap<>(); // Cards of the shown courses, reused until they change
+    private boolean stale; // Changes were missed while the dashboard was hidden
+    private LocalDate shownDate; // The day "due today" was computed for
 
     public DashboardPanel(DataManager dataManager, MainApplicationFrame mainFrame) {
         this.dataManager = dataManager;
@@ -169,47 +176,136 @@ public class DashboardPanel extends JPanel {
 
 
     public void refreshData() {
-        // Update summary cards
+        stale = false;
+        courseCards.clear();
+        updateDueCount();
+        updateCourseCount();
+        updateLastReviewDate();
+        populateCourses();
+        populateDueResources();
+    }
+
+    /**
+     * Rebuilds the dashboard if it missed changes while hidden, or if the day has changed
+     * since, so that more resources may be due.
+     */
+    public void refreshIfStale() {
+        if (stale || !LocalDate.now().equals(shownDate)) {
+            refreshData();
+        }
+    }
+
+    /**
+     * Updates only the parts of the dashboard that show what changed. While hidden, the
+     * dashboard just notes that it is stale and is rebuilt once when shown again.
+     */
+    public void dataChanged(DataChangeEvent event) {
+        if (!isShowing()) {
+            stale = true;
+            return;
+        }
+        switch (event.kind) {
+            case DATA_LOADED:
+                refreshData();
+                break;
+            case COURSE_ADDED:
+                updateCourseCount();
+                populateCourses();
+                break;
+            case COURSE_UPDATED:
+                courseCards.remove(event.courseId);
+                populateCourses();
+                populateDueResources(); // Due resources show their course's name
+                break;
+            case COURSE_DELETED:
+                courseCards.remove(event.courseId);
+                updateCourseCount();
+                populateCourses();
+                updateDueCount();
+                updateLastReviewDate(); // Its resources' time logs were deleted too
+                populateDueResources();
+                break;
+            case RESOURCE_ADDED:
+            case RESOURCE_DELETED:
+                courseCards.remove(event.courseId); // Shows the number of resources
+                populateCourses();
+                updateDueCount();
+                if (event.kind == DataChangeEvent.Kind.RESOURCE_DELETED) {
+                    updateLastReviewDate();
+                }
+                populateDueResources();
+                break;
+            case RESOURCE_UPDATED:
+                updateDueCount();
+                populateDueResources();
+                break;
+            case REVIEW_RECORDED:
+                updateDueCount();
+                updateLastReviewDate();
+                populateDueResources();
+                break;
+            case TIME_LOG_RECORDED:
+                updateLastReviewDate();
+                break;
+            case SCHEDULES_CHANGED:
+                updateDueCount();
+                populateDueResources();
+                break;
+        }
+    }
+
+    private void updateDueCount() {
+        shownDate = LocalDate.now();
         int dueCount = dataManager.getDueResourceCount();
         dueResourcesCountLabel.setText(String.valueOf(dueCount));
+    }
 
+    private void updateCourseCount() {
         totalCoursesCountLabel.setText(String.valueOf(dataManager.getAllCourses().size()));
+    }
 
-        // Find last review date from all TimeLogs
-        dataManager.getAllTimeLogs().stream()
-                .map(TimeLog::getDate) // Use getDate() from TimeLog
-                .max(LocalDate::compareTo)
-                .ifPresentOrElse(
-                        lastDate -> lastReviewDateLabel.setText(lastDate.format(DateTimeFormatter.ofPattern("MMM dd, yyyy"))),
-                        () -> lastReviewDateLabel.setText("N/A")
-                );
+    private void updateLastReviewDate() {
+        // Find last review date from all TimeLogs (kept in date order by the DataManager)
+        LocalDate lastDate = dataManager.getLastTimeLogDate();
+        lastReviewDateLabel.setText(lastDate != null ? lastDate.format(DateTimeFormatter.ofPattern("MMM dd, yyyy")) : "N/A");
+    }
 
+    private void populateCourses() {
         // Populate Courses List (top 5 or 10 most recent/relevant)
         coursesListPanel.removeAll();
-        List<Course> allCourses = dataManager.getAllCourses();
+        List<Course> allCourses = new ArrayList<>(dataManager.getAllCourses()); // Immutable view; copied to sort
         // Sort courses if desired (e.g., by name, or by last modified, or by number of resources)
         allCourses.sort(Comparator.comparing(Course::getName)); // Example: sort by name
         int coursesToShow = Math.min(allCourses.size(), 5); // Show top 5 courses
 
+        Map<EntityId, JPanel> shownCards = new HashMap<>();
         if (allCourses.isEmpty()) {
             coursesListPanel.add(createEmptyStateLabel("No courses added yet. Click 'Add New Course' to begin!"));
         } else {
             for (int i = 0; i < coursesToShow; i++) {
                 Course course = allCourses.get(i);
-                coursesListPanel.add(createCoursePanel(course));
+                JPanel card = courseCards.get(course.getEntityId());
+                if (card == null) {
+                    card = createCoursePanel(course);
+                }
+                shownCards.put(course.getEntityId(), card);
+                coursesListPanel.add(card);
                 if (i < coursesToShow - 1) {
                     coursesListPanel.add(Box.createVerticalStrut(5)); // Spacer between courses
                 }
             }
         }
+        courseCards.clear();
+        courseCards.putAll(shownCards); // Courses that dropped out of the top 5 get a new card if they return
         coursesListPanel.revalidate();
         coursesListPanel.repaint();
+    }
 
+    private void populateDueResources() {
         // Populate Due Resources List (top 5 due soonest)
         dueResourcesPanel.removeAll();
-        List<Resource> dueResources = dataManager.getDueResources(LocalDate.now());
-        dueResources.sort(Comparator.comparing(Resource::getNextReviewDate)); // Sort by soonest due
-        int resourcesToShow = Math.min(dueResources.size(), 5); // Show top 5 resources
+        List<Resource> dueResources = dataManager.getDueResources(LocalDate.now(), 5); // Already sorted by soonest due
+        int resourcesToShow = dueResources.size(); // Show top 5 resources
 
         if (dueResources.isEmpty()) {
             dueResourcesPanel.add(createEmptyStateLabel("No resources due for review. Great job!"));
@@ -0,0 +1,212 @@
+// ====================================================================================
+// Package: com.yourorg.app.gui
+// File: GlobalSearchField.java
+// Description: The search field in the header. Searches courses and resources as the
+//              user types and shows title suggestions and full-text matches in a
+//              drop-down under the field.
+// ====================================================================================
+package com.yourorg.app.gui;
+
+import com.yourorg.app.model.Course;
+import com.yourorg.app.model.Resource;
+import com.yourorg.app.service.DataManager;
+import com.yourorg.app.service.SearchIndex;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+public class GlobalSearchField extends JTextField {
+
+    private static final String PLACEHOLDER = " Search";
+    private static final int TYPING_DELAY_MILLIS = 150; // Wait for a pause in typing before searching
+    private static final int MAX_RESULTS = 10;
+    private static final int MAX_SUGGESTIONS = 5;
+
+    private final DataManager dataManager;
+    private final MainApplicationFrame mainFrame;
+    private final JPopupMenu resultsPopup = new JPopupMenu();
+    private final Timer typingTimer;
+    private SwingWorker<Matches, Void> currentSearch; // Only touched on the EDT
+    private List<SearchIndex.Result> shownResults = List.of(); // In display order
+
+    // What one query found: typo-tolerant title completions and full-text matches
+    private static class Matches {
+        final List<SearchIndex.Result> suggestions;
+        final List<SearchIndex.Result> results;
+
+        Matches(List<SearchIndex.Result> suggestions, List<SearchIndex.Result> results) {
+            this.suggestions = suggestions;
+            this.results = results;
+        }
+    }
+
+    public GlobalSearchField(DataManager dataManager, MainApplicationFrame mainFrame) {
+        super(PLACEHOLDER, 30);
+        this.dataManager = dataManager;
+        this.mainFrame = mainFrame;
+        setFont(new Font("Arial", Font.PLAIN, 14));
+        setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(Color.LIGHT_GRAY, 1, true),
+                BorderFactory.createEmptyBorder(5, 10, 5, 10)
+        ));
+        resultsPopup.setFocusable(false); // Keep the keyboard focus in the field while typing
+
+        typingTimer = new Timer(TYPING_DELAY_MILLIS, e -> startSearch());
+        typingTimer.setRepeats(false);
+
+        getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { typingTimer.restart(); }
+            public void removeUpdate(DocumentEvent e) { typingTimer.restart(); }
+            public void changedUpdate(DocumentEvent e) { typingTimer.restart(); }
+        });
+        addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                if (PLACEHOLDER.equals(getText())) {
+                    setText("");
+                }
+            }
+        });
+        addActionListener(e -> { // Enter opens the best match
+            if (!shownResults.isEmpty()) {
+                open(shownResults.get(0));
+            }
+        });
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "hideSearchResults");
+        getActionMap().put("hideSearchResults", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                resultsPopup.setVisible(false);
+            }
+        });
+    }
+
+    /**
+     * Runs the query on a worker thread. A query that is still running when the next one
+     * starts is cancelled, and results of anything but the latest query are ignored.
+     */
+    private void startSearch() {
+        if (currentSearch != null) {
+            currentSearch.cancel(true);
+        }
+        String query = getText();
+        if (query.isBlank() || PLACEHOLDER.equals(query)) {
+            currentSearch = null;
+            showResults(new Matches(List.of(), List.of()));
+            return;
+        }
+
+        SwingWorker<Matches, Void> search = new SwingWorker<Matches, Void>() {
+            @Override
+            protected Matches doInBackground() {
+                List<SearchIndex.Result> suggestions = dataManager.completeTitle(query, MAX_SUGGESTIONS);
+                return new Matches(suggestions, dataManager.search(query, MAX_RESULTS));
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || currentSearch != this) {
+                    return; // A newer query has been started
+                }
+                try {
+                    showResults(get());
+                } catch (InterruptedException | ExecutionException | CancellationException e) {
+                    System.err.println("Error running search: " + e.getMessage());
+                }
+            }
+        };
+        currentSearch = search;
+        search.execute();
+    }
+
+    private void showResults(Matches matches) {
+        // Suggestions first; full-text matches that are already suggested are not repeated
+        List<SearchIndex.Result> results = new ArrayList<>();
+        Set<String> suggested = new HashSet<>();
+        for (SearchIndex.Result suggestion : matches.suggestions) {
+            suggested.add(suggestion.kind + suggestion.id);
+        }
+        for (SearchIndex.Result result : matches.results) {
+            if (!suggested.contains(result.kind + result.id)) {
+                results.add(result);
+            }
+        }
+        List<SearchIndex.Result> shown = new ArrayList<>(matches.suggestions);
+        shown.addAll(results);
+        shownResults = shown;
+
+        resultsPopup.setVisible(false);
+        resultsPopup.removeAll();
+        if (shown.isEmpty()) {
+            if (!getText().isBlank() && !PLACEHOLDER.equals(getText())) {
+                JMenuItem none = new JMenuItem("No matches");
+                none.setEnabled(false);
+                resultsPopup.add(none);
+                resultsPopup.show(this, 0, getHeight());
+            }
+            return;
+        }
+        if (!matches.suggestions.isEmpty()) {
+            addSection("Suggestions", matches.suggestions);
+        }
+        if (!results.isEmpty()) {
+            if (!matches.suggestions.isEmpty()) {
+                resultsPopup.addSeparator();
+            }
+            addSection("Matches", results);
+        }
+        resultsPopup.setPreferredSize(null);
+        resultsPopup.pack();
+        resultsPopup.setPopupSize(Math.max(getWidth(), resultsPopup.getPreferredSize().width),
+                resultsPopup.getPreferredSize().height);
+        resultsPopup.show(this, 0, getHeight());
+    }
+
+    private void addSection(String heading, List<SearchIndex.Result> results) {
+        JMenuItem header = new JMenuItem(heading);
+        header.setFont(new Font("Arial", Font.BOLD, 12));
+        header.setEnabled(false);
+        resultsPopup.add(header);
+        for (SearchIndex.Result result : results) {
+            JMenuItem item = new JMenuItem(describe(result));
+            item.setFont(new Font("Arial", Font.PLAIN, 13));
+            item.addActionListener(e -> open(result));
+            resultsPopup.add(item);
+        }
+    }
+
+    private String describe(SearchIndex.Result result) {
+        if (result.kind == SearchIndex.Kind.COURSE) {
+            return "Course: " + result.title;
+        }
+        Resource resource = dataManager.getResourceById(result.id);
+        Course course = resource != null ? dataManager.getCourseForResource(resource) : null;
+        return "Resource: " + result.title + (course != null ? "  (" + course.getName() + ")" : "");
+    }
+
+    private void open(SearchIndex.Result result) {
+        resultsPopup.setVisible(false);
+        if (result.kind == SearchIndex.Kind.COURSE) {
+            Course course = dataManager.getCourseById(result.id);
+            if (course != null) { // May have been deleted since the search ran
+                mainFrame.showCourseDetail(course);
+            }
+        } else {
+            Resource resource = dataManager.getResourceById(result.id);
+            if (resource != null) {
+                mainFrame.showResourceDetail(resource, dataManager.getCourseForResource(resource));
+            }
+        }
+    }
+}
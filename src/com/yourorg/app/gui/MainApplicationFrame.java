@@ -30,11 +30,18 @@ public class MainApplicationFrame extends JFrame {
     // References to panels that might need refresh
     private DashboardPanel dashboardPanel;
     private CoursesListPage coursesListPage; // Renamed from CourseDetailPanel.CoursesListPage
+    private ReviewSessionPanel reviewSessionPanel; // Null until the first review session
 
     public MainApplicationFrame(DataManager dataManager) {
         this.dataManager = dataManager;
         setTitle("Smart Revision & Resource Organizer");
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE); // exitApplication() flushes pending saves first
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                exitApplication();
+            }
+        });
         setSize(1200, 800);
         setMinimumSize(new Dimension(1000, 700));
         setLocationRelativeTo(null);
@@ -61,6 +68,12 @@ public class MainApplicationFrame extends JFrame {
         // Show the Dashboard initially
         cardLayout.show(mainContentPanel, "Dashboard");
 
+        // Both panels apply each change to their existing components (or note that they are stale)
+        dataManager.addChangeListener(event -> onEventDispatchThread(() -> {
+            dashboardPanel.dataChanged(event);
+            coursesListPage.dataChanged(event);
+        }));
+
         // Load data on a background thread when the frame is visible
         loadDataInBackground();
     }
@@ -78,12 +91,7 @@ public class MainApplicationFrame extends JFrame {
 
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 0, 10));
         searchPanel.setOpaque(false);
-        JTextField searchField = new JTextField(" Search", 30);
-        searchField.setFont(new Font("Arial", Font.PLAIN, 14));
-        searchField.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(Color.LIGHT_GRAY, 1, true),
-                BorderFactory.createEmptyBorder(5, 10, 5, 10)
-        ));
+        GlobalSearchField searchField = new GlobalSearchField(dataManager, this); // Searches courses and resources as you type
         searchPanel.add(searchField);
         panel.add(searchPanel, BorderLayout.CENTER);
 
@@ -134,6 +142,7 @@ public class MainApplicationFrame extends JFrame {
         panel.add(Box.createVerticalGlue());
 
         JButton settingsButton = createSidebarButton("Settings", "/icons/settings_icon.png");
+        settingsButton.addActionListener(e -> showSchedulerSettingsDialog());
         panel.add(settingsButton);
         panel.add(Box.createVerticalStrut(20));
 
@@ -191,17 +200,30 @@ public class MainApplicationFrame extends JFrame {
     // --- Navigation Methods ---
 
     public void showDashboard() {
-        dashboardPanel.refreshData(); // Refresh the dashboard panel
+        flushReviewSession();
+        dashboardPanel.refreshIfStale(); // Rebuild only if it missed changes while hidden
         cardLayout.show(mainContentPanel, "Dashboard");
         setSidebarButtonSelection(dashboardButton);
     }
 
     public void showCoursesList() {
-        coursesListPage.refreshData(); // Refresh the courses list panel
+        flushReviewSession();
+        coursesListPage.refreshIfStale(); // Rebuild only if it missed changes while hidden
         cardLayout.show(mainContentPanel, "CoursesList");
         setSidebarButtonSelection(coursesButton);
     }
 
+    /**
+     * Saves the answers still buffered in the review session, if there is one. Called
+     * before every view switch, since leaving the session through the sidebar does not
+     * end it, and before the next view refreshes, so that it already shows the answers.
+     */
+    private void flushReviewSession() {
+        if (reviewSessionPanel != null) {
+            reviewSessionPanel.flushGrades();
+        }
+    }
+
     private void setSidebarButtonSelection(JButton selectedButton) {
         Component[] components = selectedButton == null ? new Component[0] : selectedButton.getParent().getComponents();
         for (Component comp : components) {
@@ -222,6 +244,7 @@ public class MainApplicationFrame extends JFrame {
 
 
     public void showCourseDetail(Course course) {
+        flushReviewSession();
         String cardName = "CourseDetail_" + course.getId();
         CourseDetailPanel courseDetailPanel;
 
@@ -248,6 +271,7 @@ public class MainApplicationFrame extends JFrame {
     }
 
     public void showResourceDetail(Resource resource, Course parentCourse) {
+        flushReviewSession();
         String cardName = "ResourceDetail_" + resource.getId();
         ResourceDetailPanel resourceDetailPanel;
 
@@ -274,9 +298,13 @@ public class MainApplicationFrame extends JFrame {
     public void showAddCourseDialog() {
         AddEditCourseDialog dialog = new AddEditCourseDialog(this, dataManager, null);
         dialog.setVisible(true);
-        if (dialog.isCourseSaved()) {
-            refreshCourseList(); // Refresh any relevant displays like dashboard and courses list
-        }
+        // If the course was saved, the dashboard and courses list have already been updated by its change event
+    }
+
+    public void showSchedulerSettingsDialog() {
+        SchedulerSettingsDialog dialog = new SchedulerSettingsDialog(this, dataManager);
+        dialog.setVisible(true);
+        // Rescheduled due dates reach the dashboard through the SCHEDULES_CHANGED change event
     }
 
     public void showAddEditResourceDialog(Resource resourceToEdit, Course parentCourse) {
@@ -291,37 +319,55 @@ public class MainApplicationFrame extends JFrame {
     }
 
     public void showReviewSessionPanel() {
-        ReviewSessionPanel reviewPanel = new ReviewSessionPanel(dataManager, this);
         String cardName = "ReviewSession";
 
-        // Remove existing review panel to ensure a fresh session
-        Component existingReviewPanel = null;
-        for (Component comp : mainContentPanel.getComponents()) {
-            if (comp.getName() != null && comp.getName().equals(cardName)) {
-                existingReviewPanel = comp;
-                break;
-            }
-        }
-        if (existingReviewPanel != null) {
-            mainContentPanel.remove(existingReviewPanel);
+        // Remove existing review panel to ensure a fresh session, saving its answers first
+        // so that the new session does not offer those resources again
+        flushReviewSession();
+        if (reviewSessionPanel != null) {
+            mainContentPanel.remove(reviewSessionPanel);
         }
 
+        ReviewSessionPanel reviewPanel = new ReviewSessionPanel(dataManager, this);
+        reviewSessionPanel = reviewPanel;
         mainContentPanel.add(reviewPanel, cardName);
         reviewPanel.setName(cardName);
         cardLayout.show(mainContentPanel, cardName);
         setSidebarButtonSelection(null); // No sidebar button active for review session
     }
 
+    /**
+     * Flushes all pending changes to disk before closing the application.
+     */
+    public void exitApplication() {
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        flushReviewSession();
+        boolean durable = dataManager.shutdown();
+        setCursor(Cursor.getDefaultCursor());
+        if (!durable) {
+            int confirm = JOptionPane.showConfirmDialog(this,
+                    "Some changes could not be saved to disk. Exit anyway?",
+                    "Save Error", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (confirm != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+        dispose();
+        System.exit(0);
+    }
+
     // --- Data Loading and Refreshing ---
 
     /**
-     * This method is called to trigger refreshes on relevant panels
-     * after data changes (e.g., add/edit/delete course or resource).
+     * Change events are delivered on the thread that made the change, which for
+     * xxxAsync mutations and loading is not the EDT.
      */
-    public void refreshCourseList() {
-        dashboardPanel.refreshData(); // Refresh dashboard
-        coursesListPage.refreshData(); // Refresh the full courses list page
-        // Any other panels that display a list of courses or resources might need to be refreshed here.
+    private static void onEventDispatchThread(Runnable task) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            task.run();
+        } else {
+            SwingUtilities.invokeLater(task);
+        }
     }
 
     public void loadDataInBackground() {
@@ -337,8 +383,7 @@ public class MainApplicationFrame extends JFrame {
             protected void done() {
                 try {
                     get(); // This will re-throw any exceptions from doInBackground
-                    refreshCourseList(); // Refresh relevant UI components after data is loaded
-                    showDashboard(); // Ensure dashboard is showing and updated after load
+                    showDashboard(); // Ensure dashboard is showing; the DATA_LOADED event has updated it
                     // JOptionPane.showMessageDialog(MainApplicationFrame.this, // Removed for cleaner startup
                     //         "Data loaded successfully!", "Load Complete",
                     //         JOptionPane.INFORMATION_MESSAGE);
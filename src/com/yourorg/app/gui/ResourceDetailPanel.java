@@ -13,6 +13,7 @@ import com.yourorg.app.service.DataManager;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.io.UncheckedIOException;
 import java.time.format.DateTimeFormatter;
 import java.util.Comparator;
 import java.util.List;
@@ -241,8 +242,16 @@ public class ResourceDetailPanel extends JPanel {
         descriptionArea.setCaretPosition(0);
 
         String contentHtml = "";
-        String resourceContent = currentResource.getContent(); // Use getContent()
-        if (resourceContent != null && !resourceContent.trim().isEmpty()) {
+        String resourceContent = null;
+        String contentError = null;
+        try {
+            resourceContent = currentResource.getContent(); // Use getContent()
+        } catch (UncheckedIOException e) { // Stored in a separate file that could not be read
+            contentError = e.getMessage();
+        }
+        if (contentError != null) {
+            contentHtml = "<i>The content could not be read: " + contentError + "</i>";
+        } else if (resourceContent != null && !resourceContent.trim().isEmpty()) {
             switch (currentResource.getType()) {
                 case LINK:
                 case VIDEO:
@@ -327,7 +336,6 @@ public class ResourceDetailPanel extends JPanel {
                 } else {
                     mainFrame.showDashboard(); // Fallback if parent course is unknown
                 }
-                mainFrame.refreshCourseList(); // Refresh any lists that might display resources
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to delete resource.", "Error", JOptionPane.ERROR_MESSAGE);
             }
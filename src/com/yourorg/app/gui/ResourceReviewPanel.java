@@ -209,9 +209,7 @@ public class ResourceReviewPanel extends JPanel {
     }
 
     private void markResource(int quality) {
-        dataManager.markResourceAsReviewed(currentResource.getId(), quality);
-        // FIX: Call saveDataInBackground() directly on dataManager
-        dataManager.saveDataInBackground(); // Save changes
+        dataManager.markResourceAsReviewed(currentResource.getId(), quality); // Journals and schedules the save itself
         JOptionPane.showMessageDialog(this,
                 "Resource marked as reviewed!\nNext review: " + currentResource.getNextReviewDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")),
                 "Review Complete", JOptionPane.INFORMATION_MESSAGE);
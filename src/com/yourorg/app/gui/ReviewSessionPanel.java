@@ -1,7 +1,8 @@
 // ====================================================================================
 // Package: com.yourorg.app.gui
 // File: ReviewSessionPanel.java
-// Description: A panel for conducting review sessions for due resources.
+// Description: A panel for conducting review sessions for due resources. Answers are
+//              buffered and saved in batches rather than one by one.
 // ====================================================================================
 package com.yourorg.app.gui;
 
@@ -13,20 +14,31 @@ import com.yourorg.app.service.DataManager;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
 
 public class ReviewSessionPanel extends JPanel {
 
+    private static final int FLUSH_INTERVAL_MILLIS = 30000; // Buffered answers are saved at least this often
+    private static final int FLUSH_BATCH_SIZE = 20;         // ...and as soon as this many have been given
+    private static final long MAX_REVIEW_SECONDS = 1800;    // Longer is taken to be time away, not reviewing
+
     private DataManager dataManager;
     private MainApplicationFrame mainFrame;
 
     private List<Resource> resourcesToReview;
     private int currentIndex = 0;
+    private long shownAtNanos; // When the current resource was displayed, to time the review
+
+    // Answers not yet handed to the DataManager, and every resource answered in this session
+    private final List<DataManager.ReviewGrade> pendingGrades = new ArrayList<>();
+    private final Set<String> gradedIds = new HashSet<>();
+    private final Timer flushTimer;
 
     private JLabel resourceTitleLabel;
     private JEditorPane resourceContentArea;
@@ -49,15 +61,17 @@ public class ReviewSessionPanel extends JPanel {
         setBackground(new Color(248, 248, 255));
         setBorder(new EmptyBorder(20, 20, 20, 20));
 
+        flushTimer = new Timer(FLUSH_INTERVAL_MILLIS, e -> flushGradesInBackground());
+        flushTimer.setRepeats(false); // Started by the first answer after each flush
+
         initializeReviewSession(); // Method to fetch and prepare resources
     }
 
     private void initializeReviewSession() {
-        List<Resource> dueResources = dataManager.getDueResources(LocalDate.now());
-        this.resourcesToReview = new ArrayList<>(dueResources);
-        Collections.sort(this.resourcesToReview, Comparator
-                .comparing(Resource::getNextReviewDate)
-                .thenComparing(Resource::getTitle));
+        // From the due date index, already ordered by next review date, then title
+        this.resourcesToReview = new ArrayList<>(dataManager.getDueResources(LocalDate.now()));
+        // Answered resources may not be saved yet, and so may still be listed as due
+        this.resourcesToReview.removeIf(resource -> gradedIds.contains(resource.getId()));
 
         if (this.resourcesToReview.isEmpty()) {
             displayNoReviewsMessage();
@@ -111,9 +125,10 @@ public class ReviewSessionPanel extends JPanel {
         exitReviewButton.setBorder(BorderFactory.createEmptyBorder(8, 15, 8, 15));
         exitReviewButton.addActionListener(e -> {
             int confirm = JOptionPane.showConfirmDialog(this,
-                    "Are you sure you want to exit the review session? (Progress for current session will be lost)",
+                    "Are you sure you want to exit the review session? (Your answers so far will be saved)",
                     "Exit Confirmation", JOptionPane.YES_NO_OPTION);
             if (confirm == JOptionPane.YES_OPTION) {
+                flushGrades();
                 mainFrame.showDashboard();
             }
         });
@@ -218,8 +233,16 @@ public class ReviewSessionPanel extends JPanel {
         resourceTitleLabel.setText(currentResource.getTitle());
 
         String content = "<html><body>";
-        String resourceContent = currentResource.getContent(); // Use getContent()
-        if (resourceContent == null || resourceContent.trim().isEmpty()) {
+        String resourceContent = null;
+        String contentError = null;
+        try {
+            resourceContent = currentResource.getContent(); // Use getContent()
+        } catch (UncheckedIOException e) { // Stored in a separate file that could not be read
+            contentError = e.getMessage();
+        }
+        if (contentError != null) {
+            content += "<i>The content could not be read: " + contentError + "</i><br>";
+        } else if (resourceContent == null || resourceContent.trim().isEmpty()) {
             content += "<i>No content provided for this resource.</i><br>";
         } else {
             switch (currentResource.getType()) {
@@ -262,6 +285,7 @@ public class ReviewSessionPanel extends JPanel {
 
         // Reset quality selection for the new resource
         qualityButtonGroup.clearSelection();
+        shownAtNanos = System.nanoTime();
 
         updateNavigationButtons();
     }
@@ -296,25 +320,22 @@ public class ReviewSessionPanel extends JPanel {
         int qualityOfRecall = Integer.parseInt(selectedModel.getActionCommand());
 
         Resource currentResource = resourcesToReview.get(currentIndex);
+        long seconds = Math.min(Math.max((System.nanoTime() - shownAtNanos) / 1_000_000_000L, 1), MAX_REVIEW_SECONDS);
+
+        // Buffered, and saved together with the other answers (which also records the TimeLogs)
+        pendingGrades.add(new DataManager.ReviewGrade(currentResource.getId(), qualityOfRecall, seconds));
+        gradedIds.add(currentResource.getId());
+        if (pendingGrades.size() >= FLUSH_BATCH_SIZE) {
+            flushGradesInBackground();
+        } else if (!flushTimer.isRunning()) {
+            flushTimer.start();
+        }
 
-        // FIX START: Use dataManager.markResourceAsReviewed
-        dataManager.markResourceAsReviewed(currentResource.getId(), qualityOfRecall);
-        // The dataManager.markResourceAsReviewed method already updates the resource's SRS properties
-        // AND records a TimeLog, and calls saveDataInBackground().
-        // So the two lines below are now redundant and should be removed.
-        // dataManager.recordTimeLog(new TimeLog(currentResource.getId(), 5 * 60, LocalDate.now())); // REDUNDANT
-        // dataManager.updateResource(currentResource); // REDUNDANT
-        // FIX END
-
-        JOptionPane.showMessageDialog(this,
-                "'" + currentResource.getTitle() + "' marked as reviewed. Next review: " +
-                        currentResource.getNextReviewDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")),
-                "Review Complete", JOptionPane.INFORMATION_MESSAGE);
-
-        // Remove the current resource from the list to review in this session
+        // Remove the reviewed resource from the list to review in this session
         resourcesToReview.remove(currentIndex);
 
         if (resourcesToReview.isEmpty()) {
+            flushGrades();
             displayNoReviewsMessage();
         } else {
             // Adjust currentIndex if necessary, then display next resource
@@ -323,8 +344,37 @@ public class ReviewSessionPanel extends JPanel {
             }
             displayCurrentResource();
         }
+        // Views showing due counts update themselves from the REVIEW_RECORDED change events
+    }
 
-        mainFrame.refreshCourseList(); // Refresh dashboard/other views that might show due counts
+    /**
+     * Applies the buffered answers now, as one batch. Called when the session ends, so
+     * that whatever is shown next already reflects them.
+     */
+    public void flushGrades() {
+        flushTimer.stop();
+        if (pendingGrades.isEmpty()) return;
+        List<DataManager.ReviewGrade> batch = new ArrayList<>(pendingGrades);
+        pendingGrades.clear();
+        dataManager.markResourcesAsReviewed(batch);
+    }
+
+    /**
+     * Queues the buffered answers for the data writer thread while the session goes on.
+     */
+    private void flushGradesInBackground() {
+        flushTimer.stop();
+        if (pendingGrades.isEmpty()) return;
+        int count = pendingGrades.size();
+        dataManager.markResourcesAsReviewedAsync(pendingGrades)
+                .whenComplete((applied, error) -> {
+                    if (error != null) {
+                        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                                "Could not save " + count + " review(s): " + error.getMessage(),
+                                "Review Failed", JOptionPane.ERROR_MESSAGE));
+                    }
+                });
+        pendingGrades.clear(); // markResourcesAsReviewedAsync has taken a copy
     }
 
     /**
@@ -332,7 +382,7 @@ public class ReviewSessionPanel extends JPanel {
      * (e.g., after loading new data).
      */
     public void refreshData() {
-        // Re-initialize the session to get fresh due resources
+        // Re-initialize the session to get fresh due resources; answered ones stay out
         initializeReviewSession();
     }
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+// ====================================================================================
+// Package: com.yourorg.app.gui
+// File: SchedulerSettingsDialog.java
+// Description: A dialog for choosing the spaced repetition algorithm and its parameters,
+//              optionally rescheduling all resources from their review history.
+// ====================================================================================
+package com.yourorg.app.gui;
+
+import com.yourorg.app.service.DataManager;
+import com.yourorg.app.service.FsrsScheduler;
+import com.yourorg.app.service.Rescheduler;
+import com.yourorg.app.service.Sm2Scheduler;
+import com.yourorg.app.service.SrsScheduler;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.util.concurrent.ExecutionException;
+
+public class SchedulerSettingsDialog extends JDialog {
+
+    private static final String SM2 = "SM-2";
+    private static final String FSRS = "FSRS";
+
+    private DataManager dataManager;
+
+    private JComboBox<String> algorithmComboBox;
+    private JPanel parametersPanel;
+    private CardLayout parametersLayout;
+
+    private JSpinner minimumEaseSpinner;
+    private JSpinner firstIntervalSpinner;
+    private JSpinner secondIntervalSpinner;
+    private JSpinner failedIntervalSpinner;
+    private JSpinner retentionSpinner;
+    private JSpinner maximumIntervalSpinner;
+
+    private JCheckBox rescheduleCheckBox;
+    private JProgressBar progressBar;
+    private JButton applyButton;
+    private JButton cancelButton;
+
+    private double[] fsrsWeights; // Not editable here; kept as they are
+
+    public SchedulerSettingsDialog(MainApplicationFrame mainFrame, DataManager dataManager) {
+        super(mainFrame, "Review Scheduling", true); // Modal dialog
+        this.dataManager = dataManager;
+
+        setSize(480, 400);
+        setLocationRelativeTo(mainFrame);
+        setResizable(false);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        initComponents();
+        populateFields(dataManager.getScheduler());
+    }
+
+    private void initComponents() {
+        JPanel mainPanel = new JPanel(new BorderLayout(15, 15));
+        mainPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
+        mainPanel.setBackground(new Color(248, 248, 255)); // Light background
+
+        // --- Algorithm Selection ---
+        JPanel algorithmPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        algorithmPanel.setOpaque(false);
+        JLabel algorithmLabel = new JLabel("Algorithm:");
+        algorithmLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        algorithmPanel.add(algorithmLabel);
+        algorithmComboBox = new JComboBox<>(new String[]{SM2, FSRS});
+        algorithmComboBox.setFont(new Font("Arial", Font.PLAIN, 14));
+        algorithmComboBox.addActionListener(e -> parametersLayout.show(parametersPanel, (String) algorithmComboBox.getSelectedItem()));
+        algorithmPanel.add(algorithmComboBox);
+        mainPanel.add(algorithmPanel, BorderLayout.NORTH);
+
+        // --- Parameters, one card per algorithm ---
+        parametersLayout = new CardLayout();
+        parametersPanel = new JPanel(parametersLayout);
+        parametersPanel.setOpaque(false);
+
+        minimumEaseSpinner = new JSpinner(new SpinnerNumberModel(Sm2Scheduler.DEFAULT_MINIMUM_EASE_FACTOR, 1.0, 3.0, 0.05));
+        firstIntervalSpinner = new JSpinner(new SpinnerNumberModel(Sm2Scheduler.DEFAULT_FIRST_INTERVAL_DAYS, 1, 365, 1));
+        secondIntervalSpinner = new JSpinner(new SpinnerNumberModel(Sm2Scheduler.DEFAULT_SECOND_INTERVAL_DAYS, 1, 365, 1));
+        failedIntervalSpinner = new JSpinner(new SpinnerNumberModel(Sm2Scheduler.DEFAULT_FAILED_INTERVAL_DAYS, 1, 365, 1));
+        parametersPanel.add(createFormPanel(
+                new String[]{"Minimum ease factor:", "First interval (days):", "Second interval (days):", "Interval after a lapse (days):"},
+                new JComponent[]{minimumEaseSpinner, firstIntervalSpinner, secondIntervalSpinner, failedIntervalSpinner}), SM2);
+
+        retentionSpinner = new JSpinner(new SpinnerNumberModel(FsrsScheduler.DEFAULT_REQUESTED_RETENTION, 0.70, 0.99, 0.01));
+        maximumIntervalSpinner = new JSpinner(new SpinnerNumberModel(FsrsScheduler.DEFAULT_MAXIMUM_INTERVAL_DAYS, 1, 36500, 30));
+        parametersPanel.add(createFormPanel(
+                new String[]{"Requested retention:", "Maximum interval (days):"},
+                new JComponent[]{retentionSpinner, maximumIntervalSpinner}), FSRS);
+
+        JPanel centerPanel = new JPanel(new BorderLayout(10, 10));
+        centerPanel.setOpaque(false);
+        centerPanel.add(parametersPanel, BorderLayout.CENTER);
+
+        JPanel reschedulePanel = new JPanel(new BorderLayout(5, 5));
+        reschedulePanel.setOpaque(false);
+        rescheduleCheckBox = new JCheckBox("Reschedule existing resources from their review history", true);
+        rescheduleCheckBox.setFont(new Font("Arial", Font.PLAIN, 13));
+        rescheduleCheckBox.setOpaque(false);
+        reschedulePanel.add(rescheduleCheckBox, BorderLayout.NORTH);
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false); // Shown while rescheduling
+        reschedulePanel.add(progressBar, BorderLayout.SOUTH);
+        centerPanel.add(reschedulePanel, BorderLayout.SOUTH);
+
+        mainPanel.add(centerPanel, BorderLayout.CENTER);
+
+        // --- Button Panel ---
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        buttonPanel.setOpaque(false);
+
+        applyButton = new JButton("Apply");
+        applyButton.setFont(new Font("Arial", Font.BOLD, 14));
+        applyButton.setBackground(new Color(106, 90, 205)); // Purple
+        applyButton.setForeground(Color.WHITE);
+        applyButton.setFocusPainted(false);
+        applyButton.setBorder(BorderFactory.createEmptyBorder(8, 15, 8, 15));
+        applyButton.addActionListener(e -> applySettings());
+        buttonPanel.add(applyButton);
+
+        cancelButton = new JButton("Cancel");
+        cancelButton.setFont(new Font("Arial", Font.BOLD, 14));
+        cancelButton.setBackground(new Color(220, 220, 220)); // Light gray
+        cancelButton.setForeground(Color.BLACK);
+        cancelButton.setFocusPainted(false);
+        cancelButton.setBorder(BorderFactory.createEmptyBorder(8, 15, 8, 15));
+        cancelButton.addActionListener(e -> dispose());
+        buttonPanel.add(cancelButton);
+
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        add(mainPanel);
+    }
+
+    private JPanel createFormPanel(String[] labels, JComponent[] fields) {
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setOpaque(false);
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(6, 5, 6, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+        for (int i = 0; i < labels.length; i++) {
+            JLabel label = new JLabel(labels[i]);
+            label.setFont(new Font("Arial", Font.BOLD, 14));
+            gbc.gridx = 0;
+            gbc.gridy = i;
+            gbc.weightx = 0;
+            gbc.fill = GridBagConstraints.NONE;
+            formPanel.add(label, gbc);
+
+            fields[i].setFont(new Font("Arial", Font.PLAIN, 14));
+            gbc.gridx = 1;
+            gbc.weightx = 1.0;
+            gbc.fill = GridBagConstraints.HORIZONTAL;
+            formPanel.add(fields[i], gbc);
+        }
+        gbc.gridy = labels.length;
+        gbc.weighty = 1.0; // Keeps the fields at the top
+        formPanel.add(Box.createGlue(), gbc);
+        return formPanel;
+    }
+
+    private void populateFields(SrsScheduler scheduler) {
+        fsrsWeights = new FsrsScheduler().getWeights();
+        if (scheduler instanceof FsrsScheduler) {
+            FsrsScheduler fsrs = (FsrsScheduler) scheduler;
+            fsrsWeights = fsrs.getWeights();
+            retentionSpinner.setValue(fsrs.getRequestedRetention());
+            maximumIntervalSpinner.setValue(fsrs.getMaximumIntervalDays());
+            algorithmComboBox.setSelectedItem(FSRS);
+        } else if (scheduler instanceof Sm2Scheduler) {
+            Sm2Scheduler sm2 = (Sm2Scheduler) scheduler;
+            minimumEaseSpinner.setValue(sm2.getMinimumEaseFactor());
+            firstIntervalSpinner.setValue(sm2.getFirstIntervalDays());
+            secondIntervalSpinner.setValue(sm2.getSecondIntervalDays());
+            failedIntervalSpinner.setValue(sm2.getFailedIntervalDays());
+            algorithmComboBox.setSelectedItem(SM2);
+        }
+    }
+
+    private SrsScheduler createScheduler() {
+        if (FSRS.equals(algorithmComboBox.getSelectedItem())) {
+            return new FsrsScheduler(fsrsWeights, ((Number) retentionSpinner.getValue()).doubleValue(),
+                    ((Number) maximumIntervalSpinner.getValue()).intValue());
+        }
+        return new Sm2Scheduler(((Number) minimumEaseSpinner.getValue()).doubleValue(),
+                ((Number) firstIntervalSpinner.getValue()).intValue(),
+                ((Number) secondIntervalSpinner.getValue()).intValue(),
+                ((Number) failedIntervalSpinner.getValue()).intValue());
+    }
+
+    private void applySettings() {
+        SrsScheduler scheduler;
+        try {
+            scheduler = createScheduler();
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Input Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        dataManager.setScheduler(scheduler);
+        if (!rescheduleCheckBox.isSelected()) {
+            dispose(); // New answers are scheduled with the new settings from now on
+            return;
+        }
+        rescheduleInBackground();
+    }
+
+    private void rescheduleInBackground() {
+        applyButton.setEnabled(false);
+        cancelButton.setEnabled(false);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE); // The new schedules are applied in one step at the end
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+
+        SwingWorker<Rescheduler.Result, Void> worker = new SwingWorker<Rescheduler.Result, Void>() {
+            @Override
+            protected Rescheduler.Result doInBackground() {
+                // setProgress() may be called from any thread and is coalesced onto the EDT
+                return dataManager.rescheduleAll((done, total) -> setProgress(total > 0 ? done * 100 / total : 100));
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    Rescheduler.Result result = get();
+                    String message = "Rescheduled " + result.rescheduled + " of " + result.total + " resources.";
+                    if (result.skipped > 0) {
+                        message += "\n" + result.skipped + " resources were reviewed before answers were recorded"
+                                + " and keep their current schedule.";
+                    }
+                    JOptionPane.showMessageDialog(SchedulerSettingsDialog.this, message,
+                            "Rescheduling Complete", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Error rescheduling resources: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(SchedulerSettingsDialog.this,
+                            "Could not reschedule resources: " + cause.getMessage(),
+                            "Rescheduling Failed", JOptionPane.ERROR_MESSAGE);
+                }
+                dispose();
+            }
+        };
+        worker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                progressBar.setValue((Integer) event.getNewValue());
+            }
+        });
+        worker.execute();
+    }
+}
@@ -5,71 +5,177 @@
 // ====================================================================================
 package com.yourorg.app.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
 
 public class Course implements Serializable {
     private static final long serialVersionUID = 1L; // Recommended for Serializable for version control
 
-    private String id;
+    // Serialized with the ID in its textual form, as in files written before EntityId existed
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", String.class),
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("description", String.class),
+            new ObjectStreamField("resources", List.class)
+    };
+
+    private EntityId id;
     private String name;
     private String description;
-    private List<Resource> resources; // List of resources belonging to this course
+    private PersistentList<Resource> resources; // Resources of this course; replaced by a derived version, never modified
+    private transient Map<EntityId, Integer> positions; // Index in 'resources' by resource ID, built on first use
+    private transient boolean frozen; // See freeze()
 
     public Course(String name, String description) {
-        this.id = UUID.randomUUID().toString(); // Generate a unique ID for each new course
+        this.id = EntityId.random(); // Generate a unique ID for each new course
+        this.name = name;
+        this.description = description;
+        this.resources = PersistentList.empty(); // Initialize an empty list to hold resources
+    }
+
+    // Restores a stored course with its existing ID (used when loading data)
+    public Course(String id, String name, String description, List<Resource> resources) {
+        this(EntityId.fromString(id), name, description, resources);
+    }
+
+    public Course(EntityId id, String name, String description, List<Resource> resources) {
+        this.id = id;
         this.name = name;
         this.description = description;
-        this.resources = new ArrayList<>(); // Initialize an empty list to hold resources
+        this.resources = PersistentList.of(resources);
     }
 
     // --- Getters ---
-    public String getId() { return id; }
+    public String getId() { return id.toString(); } // Textual form, for display and old callers
+    public EntityId getEntityId() { return id; }
     public String getName() { return name; }
     public String getDescription() { return description; }
 
-    // Returns an unmodifiable list to prevent external direct modification
+    // Returns an immutable list to prevent external direct modification. O(1), and later
+    // changes to the course are not visible through it: they derive a new version instead.
     public List<Resource> getResources() {
-        return Collections.unmodifiableList(resources);
+        return resources;
     }
 
     // --- Setters (for updating properties) ---
-    public void setName(String name) { this.name = name; }
-    public void setDescription(String description) { this.description = description; }
+    public void setName(String name) {
+        checkNotFrozen();
+        this.name = name;
+    }
+
+    public void setDescription(String description) {
+        checkNotFrozen();
+        this.description = description;
+    }
+
+    /**
+     * Makes this course read-only for good: its setters and resource methods throw from
+     * now on. Used for the copies in data snapshots, which other threads read unlocked.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Course " + id + " is a read-only snapshot copy");
+        }
+    }
 
     // --- Methods to manage Resources within this Course ---
     public void addResource(Resource resource) {
-        if (resource != null && !this.resources.contains(resource)) { // Avoid duplicates
-            this.resources.add(resource);
+        checkNotFrozen();
+        if (resource != null && !resourceIndex().containsKey(resource.getEntityId())) { // Avoid duplicates
+            resourceIndex().put(resource.getEntityId(), resources.size());
+            this.resources = resources.plus(resource);
         }
     }
 
     public boolean removeResource(String resourceId) {
+        return removeResource(EntityId.fromString(resourceId));
+    }
+
+    public boolean removeResource(EntityId resourceId) {
+        checkNotFrozen();
         // Remove resource by its ID
-        return this.resources.removeIf(r -> r.getId().equals(resourceId));
+        Integer position = resourceIndex().get(resourceId);
+        if (position == null) {
+            return false;
+        }
+        this.resources = resources.minus(position);
+        this.positions = null; // The resources after it moved up
+        return true;
     }
 
     public Resource getResourceById(String resourceId) {
+        return getResourceById(EntityId.fromString(resourceId));
+    }
+
+    public Resource getResourceById(EntityId resourceId) {
         // Find a specific resource by its ID
-        return this.resources.stream()
-                .filter(r -> r.getId().equals(resourceId))
-                .findFirst()
-                .orElse(null); // Returns null if not found
+        Integer position = resourceIndex().get(resourceId);
+        return position != null ? resources.get(position) : null; // Returns null if not found
+    }
+
+    // Position of a resource in getResources(), or -1 if it is not in this course. O(1)
+    public int indexOfResource(EntityId resourceId) {
+        Integer position = resourceIndex().get(resourceId);
+        return position != null ? position : -1;
     }
 
     // You can also add a method to update an existing resource
     public boolean updateResource(Resource updatedResource) {
-        for (int i = 0; i < resources.size(); i++) {
-            if (resources.get(i).getId().equals(updatedResource.getId())) {
-                resources.set(i, updatedResource);
-                return true;
+        checkNotFrozen();
+        Integer position = resourceIndex().get(updatedResource.getEntityId());
+        if (position == null) {
+            return false;
+        }
+        if (resources.get(position) != updatedResource) { // Edits usually modify the stored instance in place
+            this.resources = resources.with(position, updatedResource);
+        }
+        return true;
+    }
+
+    private Map<EntityId, Integer> resourceIndex() {
+        // Transient, so it is also rebuilt after deserialization. Filled before it is
+        // assigned, as threads reading a frozen course may build it at the same time.
+        Map<EntityId, Integer> index = positions;
+        if (index == null) {
+            index = new HashMap<>();
+            for (int i = 0; i < resources.size(); i++) {
+                index.put(resources.get(i).getEntityId(), i);
             }
+            positions = index;
         }
-        return false;
+        return index;
+    }
+
+    // --- Serialization ---
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id.toString());
+        fields.put("name", name);
+        fields.put("description", description);
+        fields.put("resources", new ArrayList<>(resources)); // As written before PersistentList existed
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = EntityId.fromString((String) fields.get("id", null));
+        name = (String) fields.get("name", null);
+        description = (String) fields.get("description", null);
+        List<Resource> stored = (List<Resource>) fields.get("resources", null);
+        resources = stored != null ? PersistentList.of(stored) : PersistentList.empty();
     }
 
     // --- Utility Methods for Object Comparison and Debugging ---
@@ -0,0 +1,80 @@
+// ====================================================================================
+// Package: com.yourorg.app.model
+// File: EntityId.java
+// Description: Compact identifier of a course, resource or time log: the 128 bits of a
+//              UUID held as two longs instead of a 36-character string.
+// ====================================================================================
+package com.yourorg.app.model;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Used for in-memory identity, hashing and the binary data files. The textual UUID form
+ * is still what getId() returns and what old data files and journal records contain;
+ * fromString() and toString() convert between the two.
+ */
+public final class EntityId implements Serializable, Comparable<EntityId> {
+    private static final long serialVersionUID = 1L;
+
+    private final long high;
+    private final long low;
+
+    public EntityId(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static EntityId random() {
+        UUID uuid = UUID.randomUUID();
+        return new EntityId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Parses the textual UUID form. Any other text is mapped to a name-based UUID, which
+     * is deterministic, so the same text always gives the same id.
+     * @return The id, or null if the text is null.
+     */
+    public static EntityId fromString(String text) {
+        if (text == null) return null;
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(text);
+        } catch (IllegalArgumentException e) {
+            uuid = UUID.nameUUIDFromBytes(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return new EntityId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    public long getHigh() { return high; }
+    public long getLow() { return low; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EntityId)) return false;
+        EntityId other = (EntityId) o;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        long bits = high ^ low;
+        return (int) (bits >> 32) ^ (int) bits; // Same as UUID.hashCode()
+    }
+
+    @Override
+    public int compareTo(EntityId other) {
+        int c = Long.compare(high, other.high);
+        return c != 0 ? c : Long.compare(low, other.low);
+    }
+
+    /**
+     * @return The textual UUID form, e.g. "123e4567-e89b-12d3-a456-426614174000".
+     */
+    @Override
+    public String toString() {
+        return new UUID(high, low).toString();
+    }
+}
@@ -0,0 +1,56 @@
+// ====================================================================================
+// Package: com.yourorg.app.model
+// File: LazyText.java
+// Description: A string that is still stored as UTF-8 bytes in a data file (or blob) and
+//              is decoded each time it is read, so unread text takes no heap space.
+// ====================================================================================
+package com.yourorg.app.model;
+
+/**
+ * Immutable. Objects sharing a LazyText (e.g. a resource and its snapshot copy) see the
+ * same text; identical instances are therefore known to be equal without decoding.
+ */
+public final class LazyText {
+
+    /**
+     * Where the bytes are, e.g. a memory-mapped data file. Must be thread-safe.
+     */
+    public interface Source {
+        String decode(long offset, int length);
+    }
+
+    private final Source source;
+    private final long offset;
+    private final int length;
+
+    public LazyText(Source source, long offset, int length) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Decodes the text. Not cached: callers that need it repeatedly should keep the result.
+     */
+    public String get() {
+        return source.decode(offset, length);
+    }
+
+    /**
+     * @return Where the bytes start in the source, as given when this was created.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return The encoded length in bytes.
+     */
+    public int length() {
+        return length;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,129 @@
+// ====================================================================================
+// Package: com.yourorg.app.model
+// File: PersistentList.java
+// Description: An immutable list of which changed versions can be derived cheaply:
+//              replacing or appending an element copies one path of a 32-way tree,
+//              and shares everything else with the version it was derived from.
+// ====================================================================================
+package com.yourorg.app.model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Elements live in the leaves of a tree in which every node has 32 slots, so get, with
+ * and plus are O(log32 n), which is at most 4 levels for a million elements. Removing
+ * an element rebuilds the list, O(n) like ArrayList.remove; it is meant to be rare.
+ * Being immutable, a version can be handed to other threads once published.
+ */
+public final class PersistentList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentList<?> EMPTY = new PersistentList<>(new Object[WIDTH], 0, 0);
+
+    private final Object[] root;
+    private final int size;
+    private final int shift; // BITS times the number of levels above the leaves
+
+    private PersistentList(Object[] root, int size, int shift) {
+        this.root = root;
+        this.size = size;
+        this.shift = shift;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> empty() {
+        return (PersistentList<T>) EMPTY;
+    }
+
+    /**
+     * @return The elements as a persistent list; the list itself if it is one.
+     */
+    @SuppressWarnings("unchecked") // Safe, as the list cannot be modified
+    public static <T> PersistentList<T> of(List<? extends T> elements) {
+        if (elements instanceof PersistentList) {
+            return (PersistentList<T>) elements;
+        }
+        PersistentList<T> list = empty();
+        for (T element : elements) {
+            list = list.plus(element);
+        }
+        return list;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (T) node[index & MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return A version with the element at the index replaced.
+     */
+    public PersistentList<T> with(int index, T element) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new PersistentList<>(replace(root, shift, index, element), size, shift);
+    }
+
+    private static Object[] replace(Object[] node, int level, int index, Object element) {
+        Object[] copy = node.clone();
+        int slot = (index >>> level) & MASK;
+        copy[slot] = level == 0 ? element : replace((Object[]) node[slot], level - BITS, index, element);
+        return copy;
+    }
+
+    /**
+     * @return A version with the element appended.
+     */
+    public PersistentList<T> plus(T element) {
+        if (size == 1 << (shift + BITS)) { // Full: add a level above the current root
+            Object[] newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = append(null, shift, size, element);
+            return new PersistentList<>(newRoot, size + 1, shift + BITS);
+        }
+        return new PersistentList<>(append(root, shift, size, element), size + 1, shift);
+    }
+
+    // The node with the element added at the index; node is null if that part of the tree does not exist yet
+    private static Object[] append(Object[] node, int level, int index, Object element) {
+        Object[] copy = node != null ? node.clone() : new Object[WIDTH];
+        int slot = (index >>> level) & MASK;
+        copy[slot] = level == 0 ? element : append((Object[]) copy[slot], level - BITS, index, element);
+        return copy;
+    }
+
+    /**
+     * @return A version without the element at the index. O(n).
+     */
+    public PersistentList<T> minus(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        PersistentList<T> list = empty();
+        for (int i = 0; i < size; i++) {
+            if (i != index) {
+                list = list.plus(get(i));
+            }
+        }
+        return list;
+    }
+}
@@ -6,32 +6,58 @@
 // ====================================================================================
 package com.yourorg.app.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.Objects;
-import java.util.UUID;
 
 public class Resource implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private String id;
+    // Serialized with the ID in its textual form, as in files written before EntityId existed
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", String.class),
+            new ObjectStreamField("title", String.class),
+            new ObjectStreamField("description", String.class),
+            new ObjectStreamField("type", ResourceType.class),
+            new ObjectStreamField("content", String.class),
+            new ObjectStreamField("lastReviewedDate", LocalDate.class),
+            new ObjectStreamField("nextReviewDate", LocalDate.class),
+            new ObjectStreamField("reviewIntervalDays", int.class),
+            new ObjectStreamField("easeFactor", double.class),
+            new ObjectStreamField("stability", double.class),
+            new ObjectStreamField("difficulty", double.class)
+    };
+
+    private EntityId id;
     private String title;
     private String description;
     private ResourceType type;
     private String content; // Could be a URL, file path, or plain text notes
 
+    // Set instead of description/content while the text is still in the data file; see LazyText
+    private transient LazyText lazyDescription;
+    private transient LazyText lazyContent;
+    private transient boolean frozen; // See freeze()
+
     // Spaced Repetition System (SRS) properties
     private LocalDate lastReviewedDate;
     private LocalDate nextReviewDate;
     private int reviewIntervalDays; // The interval in days for the next review
     private double easeFactor; // How "easy" the resource is (used by SRS algorithm)
+    private double stability;  // Days until recall probability falls to 90% (FSRS); 0 until first scheduled by it
+    private double difficulty; // 1 (easiest) to 10 (FSRS); 0 until first scheduled by it
 
+    // Stored by ordinal in the binary data file: only ever append new constants
     public enum ResourceType {
         LINK, NOTE, VIDEO, PDF, IMAGE, OTHER
     }
 
     public Resource(String title, String description, ResourceType type, String content) {
-        this.id = UUID.randomUUID().toString();
+        this.id = EntityId.random();
         this.title = title;
         this.description = description;
         this.type = type;
@@ -44,41 +70,174 @@ public class Resource implements Serializable {
         this.easeFactor = 2.5; // Default ease factor (common in SM-2 algorithm)
     }
 
+    // Restores a stored resource with its existing ID and SRS state (used when loading data)
+    public Resource(String id, String title, String description, ResourceType type, String content,
+                    LocalDate lastReviewedDate, LocalDate nextReviewDate, int reviewIntervalDays, double easeFactor) {
+        this(EntityId.fromString(id), title, description, type, content, lastReviewedDate, nextReviewDate,
+                reviewIntervalDays, easeFactor);
+    }
+
+    public Resource(EntityId id, String title, String description, ResourceType type, String content,
+                    LocalDate lastReviewedDate, LocalDate nextReviewDate, int reviewIntervalDays, double easeFactor) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.type = type;
+        this.content = content;
+        this.lastReviewedDate = lastReviewedDate;
+        this.nextReviewDate = nextReviewDate;
+        this.reviewIntervalDays = reviewIntervalDays;
+        this.easeFactor = easeFactor;
+    }
+
+    // Restores a stored resource whose description and content are decoded only when read
+    public Resource(EntityId id, String title, LazyText description, ResourceType type, LazyText content,
+                    LocalDate lastReviewedDate, LocalDate nextReviewDate, int reviewIntervalDays, double easeFactor) {
+        this(id, title, (String) null, type, (String) null, lastReviewedDate, nextReviewDate,
+                reviewIntervalDays, easeFactor);
+        this.lazyDescription = description;
+        this.lazyContent = content;
+    }
+
+    // Copies all state; text that has not been decoded yet is shared, not decoded
+    public Resource(Resource other) {
+        this(other.id, other.title, other.description, other.type, other.content, other.lastReviewedDate,
+                other.nextReviewDate, other.reviewIntervalDays, other.easeFactor);
+        this.lazyDescription = other.lazyDescription;
+        this.lazyContent = other.lazyContent;
+        this.stability = other.stability;
+        this.difficulty = other.difficulty;
+    }
+
     // --- Getters ---
-    public String getId() { return id; }
+    public String getId() { return id.toString(); } // Textual form, for display and old callers
+    public EntityId getEntityId() { return id; }
     public String getTitle() { return title; }
-    public String getDescription() { return description; }
+    public String getDescription() { return lazyDescription != null ? lazyDescription.get() : description; }
+    public LazyText getLazyDescription() { return lazyDescription; } // Null once the description is in memory
     public ResourceType getType() { return type; }
-    public String getContent() { return content; }
+    public String getContent() { return lazyContent != null ? lazyContent.get() : content; }
+    public LazyText getLazyContent() { return lazyContent; } // Null once the content is in memory
 
     public LocalDate getLastReviewedDate() { return lastReviewedDate; }
     public LocalDate getNextReviewDate() { return nextReviewDate; }
     public int getReviewIntervalDays() { return reviewIntervalDays; }
     public double getEaseFactor() { return easeFactor; }
+    public double getStability() { return stability; }
+    public double getDifficulty() { return difficulty; }
 
     // --- Setters (Crucial for the fix) ---
     // You might choose not to have setters for all fields (like ID)
-    public void setTitle(String title) { this.title = title; }
-    public void setDescription(String description) { this.description = description; }
-    public void setType(ResourceType type) { this.type = type; }
-    public void setContent(String content) { this.content = content; }
+    public void setTitle(String title) {
+        checkNotFrozen();
+        this.title = title;
+    }
+    public void setDescription(String description) {
+        checkNotFrozen();
+        this.description = description;
+        this.lazyDescription = null;
+    }
+    public void setType(ResourceType type) {
+        checkNotFrozen();
+        this.type = type;
+    }
+    public void setContent(String content) {
+        checkNotFrozen();
+        this.content = content;
+        this.lazyContent = null;
+    }
 
     public void setLastReviewedDate(LocalDate lastReviewedDate) {
+        checkNotFrozen();
         this.lastReviewedDate = lastReviewedDate;
     }
 
     public void setNextReviewDate(LocalDate nextReviewDate) {
+        checkNotFrozen();
         this.nextReviewDate = nextReviewDate;
     }
 
     public void setReviewIntervalDays(int reviewIntervalDays) {
+        checkNotFrozen();
         this.reviewIntervalDays = reviewIntervalDays;
     }
 
     public void setEaseFactor(double easeFactor) {
+        checkNotFrozen();
         this.easeFactor = easeFactor;
     }
 
+    public void setStability(double stability) {
+        checkNotFrozen();
+        this.stability = stability;
+    }
+
+    public void setDifficulty(double difficulty) {
+        checkNotFrozen();
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * Makes this resource read-only for good: its setters throw from now on. Used for the
+     * copies in data snapshots; copies made of it with the copy constructor are writable.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Resource " + id + " is a read-only snapshot copy");
+        }
+    }
+
+    /**
+     * @return true if both resources have the same description and content. Text that
+     *         both still share from the data file is not decoded to find out.
+     */
+    public boolean hasSameText(Resource other) {
+        return sameText(description, lazyDescription, other.description, other.lazyDescription)
+                && sameText(content, lazyContent, other.content, other.lazyContent);
+    }
+
+    private static boolean sameText(String text, LazyText lazy, String otherText, LazyText otherLazy) {
+        if (lazy == null && otherLazy == null) return Objects.equals(text, otherText);
+        if (lazy == otherLazy) return true;
+        return Objects.equals(lazy != null ? lazy.get() : text, otherLazy != null ? otherLazy.get() : otherText);
+    }
+
+    // --- Serialization ---
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id.toString());
+        fields.put("title", title);
+        fields.put("description", getDescription());
+        fields.put("type", type);
+        fields.put("content", getContent());
+        fields.put("lastReviewedDate", lastReviewedDate);
+        fields.put("nextReviewDate", nextReviewDate);
+        fields.put("reviewIntervalDays", reviewIntervalDays);
+        fields.put("easeFactor", easeFactor);
+        fields.put("stability", stability);
+        fields.put("difficulty", difficulty);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = EntityId.fromString((String) fields.get("id", null));
+        title = (String) fields.get("title", null);
+        description = (String) fields.get("description", null);
+        type = (ResourceType) fields.get("type", null);
+        content = (String) fields.get("content", null);
+        lastReviewedDate = (LocalDate) fields.get("lastReviewedDate", null);
+        nextReviewDate = (LocalDate) fields.get("nextReviewDate", null);
+        reviewIntervalDays = fields.get("reviewIntervalDays", 0);
+        easeFactor = fields.get("easeFactor", 2.5);
+        stability = fields.get("stability", 0.0);   // Absent in files written before FSRS support
+        difficulty = fields.get("difficulty", 0.0);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -102,6 +261,8 @@ public class Resource implements Serializable {
                 ", nextReviewDate=" + nextReviewDate +
                 ", reviewIntervalDays=" + reviewIntervalDays +
                 ", easeFactor=" + easeFactor +
+                ", stability=" + stability +
+                ", difficulty=" + difficulty +
                 '}';
     }
 }
\ No newline at end of file
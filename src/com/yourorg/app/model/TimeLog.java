@@ -1,26 +1,68 @@
 package com.yourorg.app.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDate; // Changed from LocalDateTime
 import java.time.Duration; // Still useful if calculating duration
 
 import java.util.Objects;
-import java.util.UUID;
 
 public class TimeLog implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private String id;
-    private String resourceId;
+    // Serialized with the IDs in their textual form, as in files written before EntityId existed
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", String.class),
+            new ObjectStreamField("resourceId", String.class),
+            new ObjectStreamField("date", LocalDate.class),
+            new ObjectStreamField("durationSeconds", long.class),
+            new ObjectStreamField("quality", int.class)
+    };
+
+    public static final int NO_QUALITY = -1; // Logged before answers were recorded, or not a review
+
+    private EntityId id;
+    private EntityId resourceId;
     private LocalDate date; // Changed from startTime/endTime to a single date for simplicity of "review completed on date"
     private long durationSeconds;
+    private int quality = NO_QUALITY; // The review's quality of recall (0-5)
 
     // Constructor for when duration is known (e.g., from user input or simple calculation)
     public TimeLog(String resourceId, long durationSeconds, LocalDate date) {
-        this.id = UUID.randomUUID().toString();
+        this(EntityId.fromString(resourceId), durationSeconds, date);
+    }
+
+    public TimeLog(EntityId resourceId, long durationSeconds, LocalDate date) {
+        this(resourceId, durationSeconds, date, NO_QUALITY);
+    }
+
+    // The log of a review, with the answer given
+    public TimeLog(EntityId resourceId, long durationSeconds, LocalDate date, int quality) {
+        this.id = EntityId.random();
+        this.resourceId = resourceId;
+        this.durationSeconds = durationSeconds;
+        this.date = date;
+        this.quality = quality;
+    }
+
+    // Restores a stored time log with its existing ID (used when loading data)
+    public TimeLog(String id, String resourceId, long durationSeconds, LocalDate date) {
+        this(EntityId.fromString(id), EntityId.fromString(resourceId), durationSeconds, date);
+    }
+
+    public TimeLog(EntityId id, EntityId resourceId, long durationSeconds, LocalDate date) {
+        this(id, resourceId, durationSeconds, date, NO_QUALITY);
+    }
+
+    public TimeLog(EntityId id, EntityId resourceId, long durationSeconds, LocalDate date, int quality) {
+        this.id = id;
         this.resourceId = resourceId;
         this.durationSeconds = durationSeconds;
         this.date = date;
+        this.quality = quality;
     }
 
     // You could also keep a LocalDateTime-based constructor if actual start/end times are needed for more detailed tracking
@@ -35,11 +77,33 @@ public class TimeLog implements Serializable {
     }
     */
 
-    public String getId() { return id; }
-    public String getResourceId() { return resourceId; }
+    public String getId() { return id.toString(); } // Textual form, for display and old callers
+    public EntityId getEntityId() { return id; }
+    public String getResourceId() { return resourceId != null ? resourceId.toString() : null; }
+    public EntityId getResourceEntityId() { return resourceId; }
     public LocalDate getDate() { return date; } // Changed from getStartTime/getEndTime
     public long getDurationSeconds() { return durationSeconds; }
     public long getDurationMinutes() { return durationSeconds / 60; }
+    public int getQuality() { return quality; } // NO_QUALITY if unknown
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id.toString());
+        fields.put("resourceId", getResourceId());
+        fields.put("date", date);
+        fields.put("durationSeconds", durationSeconds);
+        fields.put("quality", quality);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = EntityId.fromString((String) fields.get("id", null));
+        resourceId = EntityId.fromString((String) fields.get("resourceId", null));
+        date = (LocalDate) fields.get("date", null);
+        durationSeconds = fields.get("durationSeconds", 0L);
+        quality = fields.get("quality", NO_QUALITY); // Absent in files written before answers were recorded
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -61,6 +125,7 @@ public class TimeLog implements Serializable {
                 ", resourceId='" + resourceId + '\'' +
                 ", date=" + date +
                 ", durationSeconds=" + durationSeconds +
+                ", quality=" + quality +
                 '}';
     }
 }
\ No newline at end of file
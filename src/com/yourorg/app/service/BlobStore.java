@@ -0,0 +1,185 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: BlobStore.java
+// Description: Content-addressed storage for large resource contents (note texts):
+//              one file per SHA-256 hash, read on demand through an LRU cache with a
+//              byte budget.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.LazyText;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A blob's file name is the hash of its contents, so a blob is written once and never
+ * changes: storing a text that is already there costs one hash and no I/O, and a course
+ * shard only refers to its notes by hash. Blobs no longer referenced by any course are
+ * deleted on load. All methods are synchronized.
+ */
+public class BlobStore {
+
+    public static final int MIN_BLOB_BYTES = 1024; // Shorter contents stay inline in the course shard
+    public static final long DEFAULT_CACHE_BYTES = 4L * 1024 * 1024;
+    private static final String BLOB_SUFFIX = ".blob";
+
+    private final File directory;
+    private final long cacheBudgetBytes;
+    private final LinkedHashMap<String, String> cache = new LinkedHashMap<>(16, 0.75f, true); // Access order
+    private long cachedBytes;
+
+    /**
+     * Stands for one blob's text. Handed to LazyText, so resources read their content
+     * through the cache; the offset and length are those of the whole blob. Throws
+     * UncheckedIOException if the blob cannot be read, see read().
+     */
+    public final class Blob implements LazyText.Source {
+        public final String hash;
+
+        private Blob(String hash) {
+            this.hash = hash;
+        }
+
+        @Override
+        public String decode(long offset, int length) {
+            return read(hash);
+        }
+    }
+
+    public BlobStore(File directory, long cacheBudgetBytes) {
+        this.directory = directory;
+        this.cacheBudgetBytes = cacheBudgetBytes;
+    }
+
+    /**
+     * @return Lazily loaded text for a stored blob.
+     */
+    public LazyText text(String hash, int length) {
+        return new LazyText(new Blob(hash), 0, length);
+    }
+
+    /**
+     * @return The hash of the blob the text came from, or null if it did not come from this store.
+     */
+    public String hashOf(LazyText text) {
+        return text.getSource() instanceof Blob ? ((Blob) text.getSource()).hash : null;
+    }
+
+    /**
+     * Stores the text unless a blob with the same contents exists. The blob is on disk
+     * when this returns, so a file referring to the hash may be written next.
+     * @return The hash to refer to the blob by.
+     */
+    public synchronized String put(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        String hash = hash(bytes);
+        File file = blobFile(hash);
+        if (!file.isFile()) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create blob directory " + directory);
+            }
+            File tmpFile = new File(file.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                out.write(bytes);
+                out.getFD().sync();
+            }
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        cache(hash, text);
+        return hash;
+    }
+
+    /**
+     * @return The blob's text, from the cache if possible.
+     * @throws UncheckedIOException If it cannot be read. Not an empty text, which an edit
+     *         could otherwise save in place of the content that is still on disk.
+     */
+    public synchronized String read(String hash) {
+        String text = cache.get(hash);
+        if (text != null) {
+            return text;
+        }
+        try {
+            text = new String(Files.readAllBytes(blobFile(hash).toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Error reading note content " + hash + ": " + e.getMessage());
+            throw new UncheckedIOException("Note content " + hash + " could not be read", e);
+        }
+        cache(hash, text);
+        return text;
+    }
+
+    /**
+     * Deletes every blob that is not in the given set, e.g. those of changed notes.
+     * Only called on load, when no blob can be in use by a pending write.
+     */
+    public synchronized void retainOnly(Collection<String> referencedHashes) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(BLOB_SUFFIX) || name.endsWith(BLOB_SUFFIX + ".tmp"));
+        if (files == null) return;
+        Set<String> referenced = new HashSet<>(referencedHashes);
+        for (File file : files) {
+            String hash = file.getName().substring(0, file.getName().indexOf('.'));
+            if (!(referenced.contains(hash) && file.getName().endsWith(BLOB_SUFFIX)) && !file.delete()) {
+                System.err.println("Could not delete unused note content " + file);
+            }
+        }
+        cache.keySet().retainAll(referenced);
+        cachedBytes = 0;
+        for (String text : cache.values()) {
+            cachedBytes += bytesOf(text);
+        }
+    }
+
+    // --- Internals ---
+
+    private void cache(String hash, String text) {
+        long bytes = bytesOf(text);
+        if (bytes > cacheBudgetBytes) return; // Would evict everything else
+        String previous = cache.put(hash, text);
+        if (previous != null) {
+            cachedBytes -= bytesOf(previous);
+        }
+        cachedBytes += bytes;
+        Iterator<Map.Entry<String, String>> eldest = cache.entrySet().iterator();
+        while (cachedBytes > cacheBudgetBytes && eldest.hasNext()) {
+            cachedBytes -= bytesOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static long bytesOf(String text) {
+        return 40 + 2L * text.length(); // Roughly, as a String on the heap
+    }
+
+    private File blobFile(String hash) {
+        return new File(directory, hash + BLOB_SUFFIX);
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Every JDK has it
+        }
+    }
+}
@@ -0,0 +1,57 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: DataChangeEvent.java
+// Description: Describes one change made through the DataManager, so that views can
+//              update just the parts that show the changed course or resource.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.EntityId;
+
+/**
+ * Says what changed, not what it changed to: listeners read the current state from the
+ * DataManager. An event that is handled late (e.g. after a later change to the same
+ * course) therefore does no harm.
+ */
+public final class DataChangeEvent {
+
+    public enum Kind {
+        DATA_LOADED,       // Everything may have changed; no IDs
+        COURSE_ADDED,
+        COURSE_UPDATED,    // Name or description
+        COURSE_DELETED,    // Together with its resources and their time logs
+        RESOURCE_ADDED,
+        RESOURCE_UPDATED,
+        RESOURCE_DELETED,  // Together with its time logs
+        REVIEW_RECORDED,   // New SRS state and a new time log
+        TIME_LOG_RECORDED,
+        SCHEDULES_CHANGED  // Next review dates of any number of resources (bulk reschedule); no IDs
+    }
+
+    /**
+     * Called after the change, on the thread that made it and without any DataManager
+     * lock held. Swing listeners have to move to the EDT themselves.
+     */
+    public interface Listener {
+        void dataChanged(DataChangeEvent event);
+    }
+
+    public final Kind kind;
+    public final EntityId courseId;   // The course changed or containing the changed resource; null if none
+    public final EntityId resourceId; // Null for course events and DATA_LOADED
+
+    DataChangeEvent(Kind kind, EntityId courseId, EntityId resourceId) {
+        this.kind = kind;
+        this.courseId = courseId;
+        this.resourceId = resourceId;
+    }
+
+    @Override
+    public String toString() {
+        return "DataChangeEvent{" +
+                "kind=" + kind +
+                ", courseId=" + courseId +
+                ", resourceId=" + resourceId +
+                '}';
+    }
+}
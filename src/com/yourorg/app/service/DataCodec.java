@@ -0,0 +1,440 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: DataCodec.java
+// Description: Compact, versioned binary format for courses, resources and time logs.
+//              Used for the sharded data files and journal records; still reads the
+//              original ObjectOutputStream data file so it can be migrated.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.Course;
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.model.LazyText;
+import com.yourorg.app.model.Resource;
+import com.yourorg.app.model.TimeLog;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * File layouts (all integers big-endian). Every file starts with [int magic][int FORMAT_VERSION].
+ *
+ *   Manifest (MANIFEST_MAGIC):
+ *     long checkpointSeq, int courseCount, courseCount x id   (course order)
+ *     string archiveFile                                      (TimeLogArchive; null if none)
+ *   Course shard (COURSE_SHARD_MAGIC):
+ *     record(Course)
+ *   Time log store (TIME_LOG_FILE_MAGIC):
+ *     int  timeLogCount, timeLogCount x record(TimeLog)
+ *
+ * Every record is [int length][body], so fields can be appended to a record without
+ * changing FORMAT_VERSION: readers skip the ones they do not know. FORMAT_VERSION only
+ * changes when a layout changes otherwise, and files of any other version are rejected.
+ * Dates are epoch-day ints (NO_DATE for null), ids are UUIDs stored as two
+ * longs, strings are [int byteLength (-1 for null)][UTF-8 bytes].
+ *
+ *   Course:   id, name, description, int resourceCount, resourceCount x record(Resource)
+ *   Resource: id, title, description, byte type, content, lastReviewed, nextReview,
+ *             int reviewIntervalDays, double easeFactor,
+ *             string contentBlob, int contentBytes     (if contentBlob is not null, content
+ *                                                      is null and the text is in the
+ *                                                      BlobStore under that hash)
+ *             double stability, double difficulty      (FSRS state, 0 if never set)
+ *   TimeLog:  id, resourceId, int date, long durationSeconds,
+ *             byte quality                             (-1 if unknown)
+ */
+public final class DataCodec {
+
+    public static final int MANIFEST_MAGIC = 0x53524D46; // "SRMF"
+    public static final int COURSE_SHARD_MAGIC = 0x53524353; // "SRCS"
+    public static final int TIME_LOG_FILE_MAGIC = 0x5352544C; // "SRTL"
+    public static final int FORMAT_VERSION = 3;
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /**
+     * The contents of a data set.
+     */
+    public static class Contents {
+        public final List<Course> courses;
+        public final List<TimeLog> timeLogs;
+        public final long checkpointSeq;
+        public final TimeLogArchive timeLogArchive; // Null if the data set has no archive
+
+        Contents(List<Course> courses, List<TimeLog> timeLogs, long checkpointSeq, TimeLogArchive timeLogArchive) {
+            this.courses = courses;
+            this.timeLogs = timeLogs;
+            this.checkpointSeq = checkpointSeq;
+            this.timeLogArchive = timeLogArchive;
+        }
+    }
+
+    /**
+     * The contents of a manifest: which course shards make up the data set.
+     */
+    public static class Manifest {
+        public final List<String> courseIds;
+        public final String archiveFileName; // Null if no time logs have been archived
+        public final long checkpointSeq;
+
+        Manifest(List<String> courseIds, String archiveFileName, long checkpointSeq) {
+            this.courseIds = courseIds;
+            this.archiveFileName = archiveFileName;
+            this.checkpointSeq = checkpointSeq;
+        }
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private DataCodec() {
+    }
+
+    // --- Whole Files ---
+
+    /**
+     * Reads the Java-serialized data file of the first version of the application, which
+     * held the course list and then the time log list. Only used to migrate it to the
+     * sharded layout.
+     */
+    @SuppressWarnings("unchecked") // Suppress warning for unchecked cast from readObject
+    public static Contents readLegacyDataFile(File file) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            List<Course> courses = (List<Course>) ois.readObject();
+            List<TimeLog> timeLogs = (List<TimeLog>) ois.readObject();
+            return new Contents(new ArrayList<>(courses), new ArrayList<>(timeLogs), 0, null);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Data file corrupted or incompatible version: " + e.getMessage(), e);
+        }
+    }
+
+    public static void writeManifest(OutputStream stream, List<String> courseIds, String archiveFileName,
+                                     long checkpointSeq) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MANIFEST_MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(checkpointSeq);
+        out.writeInt(courseIds.size());
+        for (String courseId : courseIds) {
+            writeId(out, EntityId.fromString(courseId));
+        }
+        writeString(out, archiveFileName);
+        out.flush();
+    }
+
+    public static Manifest readManifest(File file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        readHeader(buf, MANIFEST_MAGIC, file);
+        try {
+            long checkpointSeq = buf.getLong();
+            int courseCount = buf.getInt();
+            List<String> courseIds = new ArrayList<>(courseCount);
+            for (int i = 0; i < courseCount; i++) {
+                courseIds.add(readId(buf).toString());
+            }
+            String archiveFileName = readString(buf);
+            return new Manifest(courseIds, archiveFileName, checkpointSeq);
+        } catch (RuntimeException e) {
+            throw new IOException("Manifest " + file + " is corrupt: " + e, e);
+        }
+    }
+
+    /**
+     * Writes a course shard. Large resource contents go to the blob store and the shard
+     * only refers to them; contents already stored there are not decoded or hashed again.
+     */
+    public static void writeCourseShard(OutputStream stream, Course course, BlobStore blobs) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(COURSE_SHARD_MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeCourse(out, course, blobs);
+        out.flush();
+    }
+
+    /**
+     * Reads a mapped course shard without decoding resource descriptions and contents;
+     * they are decoded from the mapped file, or read from the blob store, when read.
+     */
+    public static Course readCourseShard(MappedFile shard, File file, BlobStore blobs) throws IOException {
+        ByteBuffer buf = shard.buffer();
+        readHeader(buf, COURSE_SHARD_MAGIC, file);
+        try {
+            return readCourse(buf, shard, blobs);
+        } catch (RuntimeException e) {
+            throw new IOException("Course shard " + file + " is corrupt: " + e, e);
+        }
+    }
+
+    public static void writeTimeLogFile(OutputStream stream, List<TimeLog> timeLogs) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(TIME_LOG_FILE_MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(timeLogs.size());
+        for (TimeLog log : timeLogs) {
+            writeTimeLog(out, log);
+        }
+        out.flush();
+    }
+
+    public static List<TimeLog> readTimeLogFile(File file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        readHeader(buf, TIME_LOG_FILE_MAGIC, file);
+        try {
+            int timeLogCount = buf.getInt();
+            List<TimeLog> timeLogs = new ArrayList<>(timeLogCount);
+            for (int i = 0; i < timeLogCount; i++) {
+                timeLogs.add(readTimeLog(buf));
+            }
+            return timeLogs;
+        } catch (RuntimeException e) {
+            throw new IOException("Time log store " + file + " is corrupt: " + e, e);
+        }
+    }
+
+    private static void readHeader(ByteBuffer buf, int expectedMagic, File file) throws IOException {
+        if (buf.remaining() < 8 || buf.getInt() != expectedMagic) {
+            throw new IOException("Unexpected file type: " + file);
+        }
+        int version = buf.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException(file + " has format version " + version
+                    + ", this application only reads " + FORMAT_VERSION);
+        }
+    }
+
+    // --- Records ---
+
+    /**
+     * Large note contents are put in the blob store and the record refers to them by hash;
+     * contents that are still those of a stored blob are not written again.
+     */
+    public static void writeCourse(DataOutputStream out, Course course, BlobStore blobs) throws IOException {
+        writeRecord(out, body -> {
+            writeId(body, course.getEntityId());
+            writeString(body, course.getName());
+            writeString(body, course.getDescription());
+            List<Resource> resources = course.getResources();
+            body.writeInt(resources.size());
+            for (Resource resource : resources) {
+                writeResource(body, resource, blobs);
+            }
+        });
+    }
+
+    public static Course readCourse(ByteBuffer buf, BlobStore blobs) {
+        return readCourse(buf, null, blobs);
+    }
+
+    // With a text source, resource texts are left in it (buf must then cover it from offset 0)
+    private static Course readCourse(ByteBuffer buf, LazyText.Source textSource, BlobStore blobs) {
+        ByteBuffer body = readRecord(buf);
+        EntityId id = readId(body);
+        String name = readString(body);
+        String description = readString(body);
+        int resourceCount = body.getInt();
+        List<Resource> resources = new ArrayList<>(resourceCount);
+        for (int i = 0; i < resourceCount; i++) {
+            resources.add(readResource(body, textSource, blobs));
+        }
+        return new Course(id, name, description, resources);
+    }
+
+    /**
+     * See writeCourse for how the content is stored.
+     */
+    public static void writeResource(DataOutputStream out, Resource resource, BlobStore blobs) throws IOException {
+        String content = null;
+        String contentBlob = null;
+        int contentBytes = 0;
+        LazyText lazyContent = resource.getLazyContent();
+        if (lazyContent != null && blobs.hashOf(lazyContent) != null) { // Unchanged since loaded
+            contentBlob = blobs.hashOf(lazyContent);
+            contentBytes = lazyContent.length();
+        } else {
+            content = resource.getContent();
+            if (content != null && content.length() >= BlobStore.MIN_BLOB_BYTES / 3) {
+                int length = content.getBytes(StandardCharsets.UTF_8).length;
+                if (length >= BlobStore.MIN_BLOB_BYTES) {
+                    contentBlob = blobs.put(content);
+                    contentBytes = length;
+                    content = null;
+                }
+            }
+        }
+        String inlineContent = content;
+        String blobHash = contentBlob;
+        int blobBytes = contentBytes;
+        writeRecord(out, body -> {
+            writeId(body, resource.getEntityId());
+            writeString(body, resource.getTitle());
+            writeString(body, resource.getDescription());
+            body.writeByte(resource.getType() != null ? resource.getType().ordinal() : -1);
+            writeString(body, inlineContent);
+            writeDate(body, resource.getLastReviewedDate());
+            writeDate(body, resource.getNextReviewDate());
+            body.writeInt(resource.getReviewIntervalDays());
+            body.writeDouble(resource.getEaseFactor());
+            writeString(body, blobHash);
+            body.writeInt(blobBytes);
+            body.writeDouble(resource.getStability());
+            body.writeDouble(resource.getDifficulty());
+        });
+    }
+
+    public static Resource readResource(ByteBuffer buf, BlobStore blobs) {
+        return readResource(buf, null, blobs);
+    }
+
+    private static Resource readResource(ByteBuffer buf, LazyText.Source textSource, BlobStore blobs) {
+        ByteBuffer body = readRecord(buf);
+        EntityId id = readId(body);
+        String title = readString(body);
+        LazyText lazyDescription = null;
+        String description = null;
+        if (textSource != null) {
+            lazyDescription = readLazyString(body, textSource);
+        } else {
+            description = readString(body);
+        }
+        int typeOrdinal = body.get();
+        Resource.ResourceType type = typeOrdinal >= 0 && typeOrdinal < Resource.ResourceType.values().length
+                ? Resource.ResourceType.values()[typeOrdinal] : Resource.ResourceType.OTHER;
+        LazyText lazyContent = null;
+        String content = null;
+        if (textSource != null) {
+            lazyContent = readLazyString(body, textSource);
+        } else {
+            content = readString(body);
+        }
+        LocalDate lastReviewed = readDate(body);
+        LocalDate nextReview = readDate(body);
+        int reviewIntervalDays = body.getInt();
+        double easeFactor = body.getDouble();
+        String contentBlob = readString(body);
+        int contentBytes = body.getInt();
+        if (contentBlob != null) {
+            if (blobs == null) {
+                throw new IllegalArgumentException("Resource " + id + " refers to stored content " + contentBlob);
+            }
+            lazyContent = blobs.text(contentBlob, contentBytes);
+        }
+        double stability = body.getDouble();
+        double difficulty = body.getDouble();
+        Resource resource;
+        if (textSource != null || lazyContent != null) {
+            resource = new Resource(id, title, lazyDescription, type, lazyContent, lastReviewed, nextReview,
+                    reviewIntervalDays, easeFactor);
+            if (textSource == null) { // Only the content is a blob
+                resource.setDescription(description);
+            }
+        } else {
+            resource = new Resource(id, title, description, type, content, lastReviewed, nextReview,
+                    reviewIntervalDays, easeFactor);
+        }
+        resource.setStability(stability);
+        resource.setDifficulty(difficulty);
+        return resource;
+    }
+
+    public static void writeTimeLog(DataOutputStream out, TimeLog log) throws IOException {
+        writeRecord(out, body -> {
+            writeId(body, log.getEntityId());
+            writeId(body, log.getResourceEntityId());
+            writeDate(body, log.getDate());
+            body.writeLong(log.getDurationSeconds());
+            body.writeByte(log.getQuality());
+        });
+    }
+
+    public static TimeLog readTimeLog(ByteBuffer buf) {
+        ByteBuffer body = readRecord(buf);
+        EntityId id = readId(body);
+        EntityId resourceId = readId(body);
+        LocalDate date = readDate(body);
+        long durationSeconds = body.getLong();
+        int quality = body.get();
+        return new TimeLog(id, resourceId, durationSeconds, date, quality);
+    }
+
+    private static void writeRecord(DataOutputStream out, RecordWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream body = new DataOutputStream(bytes);
+        writer.write(body);
+        body.flush();
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Returns the body of the next record as its own buffer and advances past it,
+     * so fields appended by newer versions of the application are skipped. The body keeps the
+     * positions of the enclosing buffer, which lazily read strings refer to.
+     */
+    private static ByteBuffer readRecord(ByteBuffer buf) {
+        int length = buf.getInt();
+        ByteBuffer body = buf.duplicate();
+        body.limit(buf.position() + length);
+        buf.position(buf.position() + length);
+        return body;
+    }
+
+    // --- Fields ---
+
+    static void writeId(DataOutputStream out, EntityId id) throws IOException {
+        out.writeLong(id.getHigh());
+        out.writeLong(id.getLow());
+    }
+
+    static EntityId readId(ByteBuffer buf) {
+        return new EntityId(buf.getLong(), buf.getLong());
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) return null;
+        String value;
+        if (buf.hasArray()) {
+            value = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buf.get(buf.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buf.position(buf.position() + length);
+        return value;
+    }
+
+    // Like readString, but only records where the text is
+    private static LazyText readLazyString(ByteBuffer buf, LazyText.Source source) {
+        int length = buf.getInt();
+        if (length < 0) return null;
+        LazyText text = new LazyText(source, buf.position(), length);
+        buf.position(buf.position() + length);
+        return text;
+    }
+
+    static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeInt(date != null ? (int) date.toEpochDay() : NO_DATE);
+    }
+
+    static LocalDate readDate(ByteBuffer buf) {
+        int epochDay = buf.getInt();
+        return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+}
@@ -0,0 +1,177 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: DataCommandQueue.java
+// Description: Single-writer command queue for data mutations. Commands are applied in
+//              submission order on one dedicated thread; whatever has queued up while a
+//              batch was running is applied as the next batch.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Lets the UI thread hand a mutation off instead of applying it itself. Each command's
+ * future is completed on the writer thread once the batch containing it has been applied,
+ * so UI code must move back to the EDT (e.g. with SwingUtilities.invokeLater) before
+ * touching components. A command that throws completes its future exceptionally; the
+ * rest of its batch is still applied.
+ */
+public class DataCommandQueue {
+
+    /**
+     * Applies one batch of commands, e.g. holding a lock around all of them.
+     * Always invoked on the writer thread.
+     */
+    public interface BatchRunner {
+        void runBatch(Runnable batch);
+    }
+
+    private static final class Command<T> {
+        final Supplier<T> action;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        boolean applied;
+        T result;
+        RuntimeException failure;
+
+        Command(Supplier<T> action) {
+            this.action = action;
+        }
+
+        void apply() {
+            try {
+                result = action.get();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            applied = true;
+        }
+
+        void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    private final BatchRunner batchRunner;
+    private final ExecutorService writer;
+    private volatile Thread writerThread;
+
+    // Guarded by 'this'
+    private List<Command<?>> pending = new ArrayList<>();
+    private long submittedCount;
+    private long completedCount;
+    private boolean drainScheduled;
+    private boolean shutDown;
+
+    public DataCommandQueue(BatchRunner batchRunner) {
+        this.batchRunner = batchRunner;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "DataManager-writer");
+            thread.setDaemon(true); // Never keep the JVM alive; shutdown goes through awaitIdle()
+            writerThread = thread;
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a command behind all commands submitted before it.
+     * @return Completes with the command's result once it has been applied.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> action) {
+        Command<T> command = new Command<>(action);
+        synchronized (this) {
+            if (shutDown) {
+                command.future.completeExceptionally(new RejectedExecutionException("Data command queue is shut down"));
+                return command.future;
+            }
+            pending.add(command);
+            submittedCount++;
+            if (!drainScheduled) {
+                drainScheduled = true;
+                writer.execute(this::drain);
+            }
+        }
+        return command.future;
+    }
+
+    /**
+     * Waits until every command submitted before this call has been applied. Returns
+     * false at once on the writer thread, which would otherwise wait for itself.
+     * @return true if they have, false on timeout or interruption.
+     */
+    public synchronized boolean awaitIdle(long timeoutMillis) {
+        if (Thread.currentThread() == writerThread) {
+            return completedCount >= submittedCount;
+        }
+        long target = submittedCount;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (completedCount < target) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the queued commands and stops the writer thread. Commands submitted
+     * afterwards fail with a RejectedExecutionException.
+     * @return true if every queued command was applied before the timeout.
+     */
+    public boolean shutdown(long timeoutMillis) {
+        boolean idle = awaitIdle(timeoutMillis);
+        synchronized (this) {
+            shutDown = true;
+        }
+        writer.shutdown();
+        return idle;
+    }
+
+    private void drain() {
+        List<Command<?>> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new ArrayList<>();
+            drainScheduled = false; // Commands arriving from now on form the next batch
+        }
+        try {
+            batchRunner.runBatch(() -> {
+                for (Command<?> command : batch) {
+                    command.apply();
+                }
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Error applying data changes: " + e.getMessage());
+            e.printStackTrace();
+            for (Command<?> command : batch) {
+                if (!command.applied) {
+                    command.failure = e;
+                }
+            }
+        }
+        synchronized (this) {
+            completedCount += batch.size();
+            notifyAll();
+        }
+        // Outside the lock, as callbacks attached to the futures run right here
+        for (Command<?> command : batch) {
+            command.complete();
+        }
+    }
+}
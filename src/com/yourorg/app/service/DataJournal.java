@@ -0,0 +1,436 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: DataJournal.java
+// Description: Append-only write-ahead journal for DataManager. Every mutation is
+//              appended as a small record; the full snapshot is only rewritten on
+//              periodic checkpoints, and the journal is replayed on load.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.Course;
+import com.yourorg.app.model.Resource;
+import com.yourorg.app.model.TimeLog;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class DataJournal {
+
+    // Record types. Never renumber these, they are stored on disk; 1, 4, 5, 7 and 8 are retired.
+    static final byte UPDATE_COURSE = 2;
+    static final byte DELETE_COURSE = 3;
+    static final byte DELETE_RESOURCE = 6;
+    static final byte ADD_COURSE = 9;       // DataCodec course record, notes by blob hash
+    static final byte ADD_RESOURCE = 10;    // DataCodec resource record, notes by blob hash
+    static final byte UPDATE_RESOURCE = 11; // DataCodec resource record, notes by blob hash
+    static final byte ADD_TIME_LOG = 12;    // DataCodec time log record
+    static final byte SRS_UPDATE = 13;      // With the FSRS state
+
+    // Frame layout: [int payloadLength][long seq][byte type][payload][int crc32]
+    private static final int FRAME_OVERHEAD = 4 + 8 + 1 + 4;
+    // Far above any real record; a longer length can only come from a torn or corrupt frame
+    private static final int MAX_PAYLOAD_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * Receives the records of the journal during replay.
+     * Implementations must be idempotent: a record may already be contained in the
+     * snapshot it is replayed onto (see DataManager#writeCheckpoint()).
+     */
+    public interface Replayer {
+        void addCourse(Course course);
+        void updateCourse(String courseId, String name, String description);
+        void deleteCourse(String courseId);
+        void addResource(String courseId, Resource resource);
+        void updateResource(Resource resource);
+        void deleteResource(String resourceId);
+        void addTimeLog(TimeLog log);
+        void updateSrs(String resourceId, LocalDate lastReviewedDate, LocalDate nextReviewDate,
+                       int reviewIntervalDays, double easeFactor, double stability, double difficulty);
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static class Frame {
+        long seq;
+        byte type;
+        byte[] payload;
+    }
+
+    private final File file;
+    private final BlobStore blobs; // Holds the large note contents that records refer to
+    private FileOutputStream out; // Opened lazily in append mode
+    private long lastSeq;         // Sequence number of the last appended record
+    private int recordCount;      // Number of records currently in the journal file
+
+    public DataJournal(String fileName, BlobStore blobs) {
+        this.file = new File(fileName);
+        this.blobs = blobs;
+    }
+
+    // --- Appending ---
+
+    public boolean appendAddCourse(Course course) {
+        return append(ADD_COURSE, out -> DataCodec.writeCourse(out, course, blobs));
+    }
+
+    public boolean appendUpdateCourse(Course course) {
+        return append(UPDATE_COURSE, out -> {
+            DataCodec.writeString(out, course.getId());
+            DataCodec.writeString(out, course.getName());
+            DataCodec.writeString(out, course.getDescription());
+        });
+    }
+
+    public boolean appendDeleteCourse(String courseId) {
+        return append(DELETE_COURSE, out -> DataCodec.writeString(out, courseId));
+    }
+
+    public boolean appendAddResource(String courseId, Resource resource) {
+        return append(ADD_RESOURCE, out -> {
+            DataCodec.writeString(out, courseId);
+            DataCodec.writeResource(out, resource, blobs);
+        });
+    }
+
+    public boolean appendUpdateResource(Resource resource) {
+        return append(UPDATE_RESOURCE, out -> DataCodec.writeResource(out, resource, blobs));
+    }
+
+    public boolean appendDeleteResource(String resourceId) {
+        return append(DELETE_RESOURCE, out -> DataCodec.writeString(out, resourceId));
+    }
+
+    public boolean appendTimeLog(TimeLog log) {
+        return append(ADD_TIME_LOG, timeLogPayload(log));
+    }
+
+    public boolean appendSrsUpdate(Resource resource) {
+        return append(SRS_UPDATE, srsPayload(resource));
+    }
+
+    /**
+     * Appends the time log and SRS update of each of a batch of reviews, all in a single
+     * write call. The records are the same as those of appendTimeLog and appendSrsUpdate.
+     * @param logs The new time logs; logs.get(i) is the review of reviewed.get(i).
+     */
+    public synchronized boolean appendReviews(List<TimeLog> logs, List<Resource> reviewed) {
+        try {
+            ByteArrayOutputStream frames = new ByteArrayOutputStream();
+            long seq = lastSeq;
+            for (int i = 0; i < logs.size(); i++) {
+                frames.write(encodeFrame(++seq, ADD_TIME_LOG, timeLogPayload(logs.get(i))));
+                frames.write(encodeFrame(++seq, SRS_UPDATE, srsPayload(reviewed.get(i))));
+            }
+            writeFrames(frames.toByteArray(), seq, 2 * logs.size());
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error appending to journal " + file + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static PayloadWriter timeLogPayload(TimeLog log) {
+        return out -> DataCodec.writeTimeLog(out, log);
+    }
+
+    private static PayloadWriter srsPayload(Resource resource) {
+        return out -> {
+            DataCodec.writeString(out, resource.getId());
+            writeDate(out, resource.getLastReviewedDate());
+            writeDate(out, resource.getNextReviewDate());
+            out.writeInt(resource.getReviewIntervalDays());
+            out.writeDouble(resource.getEaseFactor());
+            out.writeDouble(resource.getStability());
+            out.writeDouble(resource.getDifficulty());
+        };
+    }
+
+    private synchronized boolean append(byte type, PayloadWriter writer) {
+        try {
+            long seq = lastSeq + 1;
+            writeFrames(encodeFrame(seq, type, writer), seq, 1);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error appending to journal " + file + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static byte[] encodeFrame(long seq, byte type, PayloadWriter writer) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        try {
+            writer.write(payload);
+        } catch (UncheckedIOException e) { // Content that had to be read from a blob
+            throw e.getCause();
+        }
+        payload.flush();
+        byte[] body = payloadBytes.toByteArray();
+        if (body.length > MAX_PAYLOAD_LENGTH) {
+            throw new IOException("Journal record of " + body.length + " bytes is too large");
+        }
+
+        ByteArrayOutputStream frameBytes = new ByteArrayOutputStream(body.length + FRAME_OVERHEAD);
+        DataOutputStream frame = new DataOutputStream(frameBytes);
+        frame.writeInt(body.length);
+        frame.writeLong(seq);
+        frame.writeByte(type);
+        frame.write(body);
+        frame.writeInt(checksum(seq, type, body));
+        frame.flush();
+        return frameBytes.toByteArray();
+    }
+
+    /**
+     * @param lastFrameSeq The sequence number of the last of the frames.
+     */
+    private void writeFrames(byte[] frames, long lastFrameSeq, int frameCount) throws IOException {
+        // One write call per append, so a crash leaves at most one torn record at the tail
+        if (out == null) {
+            out = new FileOutputStream(file, true);
+        }
+        out.write(frames);
+        lastSeq = lastFrameSeq;
+        recordCount += frameCount;
+    }
+
+    // --- Replay and Checkpointing ---
+
+    /**
+     * Replays every record with a sequence number greater than {@code afterSeq}.
+     * A torn or corrupt record at the tail (e.g. from a crash mid-write) ends the
+     * replay and is cut off so that new records are appended after valid data. So does
+     * a record that cannot be replayed, together with the records after it.
+     * @param afterSeq The sequence number already contained in the loaded snapshot.
+     * @return The number of records replayed.
+     */
+    public synchronized int replay(long afterSeq, Replayer replayer) {
+        closeQuietly();
+        lastSeq = afterSeq;
+        recordCount = 0;
+        if (!file.exists()) {
+            return 0;
+        }
+
+        int replayed = 0;
+        long validLength = 0;
+        long fileLength = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            Frame frame;
+            while ((frame = readFrame(in, fileLength - validLength)) != null) {
+                if (frame.seq > afterSeq) {
+                    try {
+                        dispatch(frame, replayer);
+                    } catch (RuntimeException e) { // Intact but malformed, e.g. a payload too short for its type
+                        System.err.println("Error replaying journal record " + frame.seq + " of type " + frame.type
+                                + ": " + e);
+                        break;
+                    }
+                    replayed++;
+                }
+                validLength += FRAME_OVERHEAD + frame.payload.length;
+                recordCount++;
+                lastSeq = Math.max(lastSeq, frame.seq);
+            }
+        } catch (IOException e) {
+            System.err.println("Error replaying journal " + file + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        if (validLength < fileLength) {
+            System.err.println("Journal " + file + " has a torn or unreadable tail, truncating to " + validLength + " bytes.");
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                System.err.println("Error truncating journal: " + e.getMessage());
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Drops all records up to and including {@code seq}, after a snapshot containing
+     * them has been written. Records appended after the snapshot was started are kept.
+     */
+    public synchronized void discardThrough(long seq) {
+        closeQuietly();
+        if (!file.exists()) {
+            recordCount = 0;
+            return;
+        }
+        if (seq >= lastSeq) {
+            // Nothing newer than the snapshot, simply empty the journal
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(0);
+                recordCount = 0;
+            } catch (IOException e) {
+                System.err.println("Error truncating journal: " + e.getMessage());
+            }
+            return;
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        int kept = 0;
+        long remaining = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+             DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            Frame frame;
+            while ((frame = readFrame(in, remaining)) != null) {
+                remaining -= FRAME_OVERHEAD + frame.payload.length;
+                if (frame.seq > seq) {
+                    tmpOut.writeInt(frame.payload.length);
+                    tmpOut.writeLong(frame.seq);
+                    tmpOut.writeByte(frame.type);
+                    tmpOut.write(frame.payload);
+                    tmpOut.writeInt(checksum(frame.seq, frame.type, frame.payload));
+                    kept++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error compacting journal " + file + ": " + e.getMessage());
+            e.printStackTrace();
+            tmp.delete();
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            recordCount = kept;
+        } catch (IOException e) {
+            System.err.println("Error replacing journal " + file + ": " + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Forces every appended record to the storage device. Called by the persistence
+     * scheduler, so one sync covers a whole burst of mutations.
+     */
+    public synchronized void sync() throws IOException {
+        if (out != null) {
+            out.getFD().sync();
+        }
+    }
+
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // Nothing useful to do, all writes have already been handed to the OS
+            }
+            out = null;
+        }
+    }
+
+    // --- Frame and Payload Encoding ---
+
+    /**
+     * @param remaining The number of bytes from the start of the frame to the end of the file.
+     * @return The frame, or null at the end of the journal or at a torn or corrupt frame.
+     */
+    private static Frame readFrame(DataInputStream in, long remaining) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null; // Clean end of journal
+        }
+        if (length < 0 || length > MAX_PAYLOAD_LENGTH || length > remaining - FRAME_OVERHEAD) {
+            return null; // Torn or corrupt length, checked before anything is allocated for it
+        }
+        try {
+            Frame frame = new Frame();
+            frame.seq = in.readLong();
+            frame.type = in.readByte();
+            frame.payload = new byte[length];
+            in.readFully(frame.payload);
+            int crc = in.readInt();
+            return crc == checksum(frame.seq, frame.type, frame.payload) ? frame : null;
+        } catch (EOFException e) {
+            return null; // Torn record
+        }
+    }
+
+    private static int checksum(long seq, byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (seq >>> shift));
+        }
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private void dispatch(Frame frame, Replayer replayer) {
+        ByteBuffer in = ByteBuffer.wrap(frame.payload);
+        switch (frame.type) {
+            case ADD_COURSE:
+                replayer.addCourse(DataCodec.readCourse(in, blobs));
+                break;
+            case UPDATE_COURSE:
+                replayer.updateCourse(DataCodec.readString(in), DataCodec.readString(in), DataCodec.readString(in));
+                break;
+            case DELETE_COURSE:
+                replayer.deleteCourse(DataCodec.readString(in));
+                break;
+            case ADD_RESOURCE:
+                replayer.addResource(DataCodec.readString(in), DataCodec.readResource(in, blobs));
+                break;
+            case UPDATE_RESOURCE:
+                replayer.updateResource(DataCodec.readResource(in, blobs));
+                break;
+            case DELETE_RESOURCE:
+                replayer.deleteResource(DataCodec.readString(in));
+                break;
+            case ADD_TIME_LOG:
+                replayer.addTimeLog(DataCodec.readTimeLog(in));
+                break;
+            case SRS_UPDATE: {
+                String resourceId = DataCodec.readString(in);
+                LocalDate lastReviewed = readDate(in);
+                LocalDate nextReview = readDate(in);
+                int reviewIntervalDays = in.getInt();
+                double easeFactor = in.getDouble();
+                double stability = in.getDouble();
+                double difficulty = in.getDouble();
+                replayer.updateSrs(resourceId, lastReviewed, nextReview, reviewIntervalDays, easeFactor,
+                        stability, difficulty);
+                break;
+            }
+            default:
+                System.err.println("Skipping unknown journal record type " + frame.type + " (seq " + frame.seq + ")");
+        }
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.toEpochDay());
+        }
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        return in.get() != 0 ? LocalDate.ofEpochDay(in.getLong()) : null;
+    }
+}
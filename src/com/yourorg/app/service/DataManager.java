@@ -2,181 +2,926 @@
 // Package: com.yourorg.app.service
 // File: DataManager.java
 // Description: Manages the application's data (courses, resources, time logs)
-//              including persistence (saving/loading to/from file).
+//              including persistence (saving/loading to/from file). Mutations are
+//              appended to a DataJournal; the full snapshot is written on checkpoints.
+//              Every mutation publishes an immutable DataSnapshot, which is what the
+//              persistence thread serializes. Reads and mutations may come from any
+//              thread: they are ordered by a read/write lock.
 // ====================================================================================
 package com.yourorg.app.service;
 
 import com.yourorg.app.model.Course;
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.model.PersistentList;
 import com.yourorg.app.model.Resource;
 import com.yourorg.app.model.TimeLog;
 
-import javax.swing.SwingWorker; // <--- ADD THIS IMPORT
-
 import java.io.*;
 import java.time.LocalDate;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Thread-safe: mutations take the write lock, queries the read lock, and the plain
+ * lookups by ID an optimistic read that only falls back to the lock if a mutation ran
+ * meanwhile. The model objects returned are the live ones; a background job that needs
+ * a consistent view of several of them should use getSnapshot() instead.
+ * Each mutation also has an xxxAsync form, which queues it for a dedicated writer thread
+ * (see DataCommandQueue) instead of applying it on the caller's thread. Every mutation
+ * is announced to the change listeners as a DataChangeEvent once it is complete.
+ */
 public class DataManager {
 
-    private List<Course> courses;
-    private List<TimeLog> timeLogs;
-    private final String DATA_FILE = "app_data.ser"; // Serialization file
+    // Guards courses, timeLogs and the indexes below (the search index has its own lock).
+    // Not reentrant: public methods lock, the private helpers they call never do.
+    private final StampedLock lock = new StampedLock();
+    private final AtomicInteger waitingWriters = new AtomicInteger(); // See read()
+
+    private PersistentList<Course> courses; // Immutable, replaced by a derived version on every change
+    private volatile List<Resource> allResources; // Cache for getAllResources(); dropped by every mutation
+    private TimeLogStore timeLogs; // Columnar; TimeLog objects are created on demand
+    private final Map<EntityId, Course> coursesById = new HashMap<>();     // Index over 'courses'
+    private final Map<EntityId, Resource> resourcesById = new HashMap<>(); // Index over all courses' resources
+    private final Map<EntityId, EntityId> courseIdByResourceId = new HashMap<>(); // Parent course of each resource
+    private final DueDateIndex dueIndex = new DueDateIndex(); // Resources by next review date
+    private final SearchIndex searchIndex; // Text of courses and resources, for search()
+    private final List<DataChangeEvent.Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile SrsScheduler scheduler = new Sm2Scheduler(); // Computes the SRS state after each review
+    private final SrsState reviewState = new SrsState(); // Reused by every review; guarded by the write lock
+    private List<DataChangeEvent> pendingEvents = new ArrayList<>(); // Guarded by the write lock; see write()
+    private final String DATA_DIR = "app_data"; // Sharded data files, see ShardedDataStore
+    private final String LEGACY_DATA_FILE = "app_data.ser"; // Single-file format, migrated on first start
+    private final String JOURNAL_FILE = "app_data.journal"; // Mutations since the last snapshot
+    private final String SCHEDULER_FILE = "scheduler.properties"; // In DATA_DIR; see SchedulerSettings
+    private static final int CHECKPOINT_INTERVAL = 500; // Journal records before a new snapshot is written
+    public static final long DEFAULT_SAVE_COALESCE_MILLIS = 250; // Mutations within this window share one save
+    private static final long SHUTDOWN_FLUSH_TIMEOUT_MILLIS = 10000;
+    public static final int DEFAULT_ARCHIVE_AFTER_DAYS = 365; // Older time logs are moved off the heap on load
+    private static final long DEFAULT_REVIEW_SECONDS = 300; // Logged for a review whose duration is unknown
+
+    private final DataJournal journal;
+    private final PersistenceScheduler persistence;
+    private final DataCommandQueue commands; // Applies the xxxAsync mutations on its writer thread
+    private final ShardedDataStore store;
+    private final int archiveAfterDays;
+    private volatile boolean checkpointRequested; // Next save writes a checkpoint, not just a journal sync
+
+    // Dirty tracking: what the next checkpoint has to rewrite. Guarded by dirtyLock.
+    private final Object dirtyLock = new Object();
+    private Set<EntityId> dirtyCourseIds = new HashSet<>();
+    private Set<EntityId> deletedCourseIds = new HashSet<>();
+    private boolean timeLogsDirty;
+    private volatile DataSnapshot snapshot; // Replaced (never modified) under dirtyLock
+
+    // Only used by the persistence thread: the archive version last written without the
+    // logs of removed resources, and what it was made from (see currentArchive())
+    private TimeLogArchive compactedArchive;
+    private TimeLogArchive compactedFrom;
+    private Set<EntityId> compactedWithout;
+    private final Map<Object, Long> pinnedVersions = new ConcurrentHashMap<>(); // Open PinnedSnapshots' versions
 
     public DataManager() {
-        this.courses = new ArrayList<>();
-        this.timeLogs = new ArrayList<>();
+        this(DEFAULT_SAVE_COALESCE_MILLIS);
+    }
+
+    /**
+     * @param saveCoalesceMillis How long to wait after a mutation before saving, so
+     *                           that bursts of mutations are persisted together.
+     */
+    public DataManager(long saveCoalesceMillis) {
+        this(saveCoalesceMillis, DEFAULT_ARCHIVE_AFTER_DAYS);
+    }
+
+    /**
+     * @param archiveAfterDays Time logs older than this many days are moved to the
+     *                         time log archive when the data is loaded; 0 never archives.
+     */
+    public DataManager(long saveCoalesceMillis, int archiveAfterDays) {
+        this.archiveAfterDays = archiveAfterDays;
+        this.courses = PersistentList.empty();
+        this.timeLogs = new TimeLogStore();
+        this.store = new ShardedDataStore(new File(DATA_DIR));
+        this.journal = new DataJournal(JOURNAL_FILE, store.getBlobStore());
+        this.persistence = new PersistenceScheduler(this::persistPendingChanges, saveCoalesceMillis);
+        this.commands = new DataCommandQueue(batch -> write(() -> {
+            batch.run(); // A whole batch of queued commands under one write lock
+            return null;
+        }));
+        this.searchIndex = new SearchIndex(() -> snapshot);
+        listeners.add(searchIndex); // Indexes the changed text when next searched
         loadData(); // Attempt to load data on initialization
     }
 
     // --- Persistence Methods ---
+
+    /**
+     * Writes a checkpoint immediately and waits for it to complete.
+     * The write itself still happens on the persistence thread, so it never races
+     * with a scheduled background save.
+     */
     public void saveData() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FILE))) {
-            oos.writeObject(courses);
-            oos.writeObject(timeLogs);
-            System.out.println("Data saved successfully to " + DATA_FILE);
-        } catch (IOException e) {
-            System.err.println("Error saving data: " + e.getMessage());
-            e.printStackTrace();
+        checkpointRequested = true;
+        persistence.markDirty();
+        if (!persistence.flush(SHUTDOWN_FLUSH_TIMEOUT_MILLIS)) {
+            System.err.println("Error saving data: snapshot was not written within the timeout.");
+        }
+    }
+
+    /**
+     * Runs on the persistence thread. Forces the journal to disk and, when requested
+     * or when the journal has grown large, folds it into a new snapshot.
+     */
+    private void persistPendingChanges() throws IOException {
+        journal.sync();
+        if (checkpointRequested || journal.getRecordCount() >= CHECKPOINT_INTERVAL) {
+            checkpointRequested = false;
+            try {
+                writeCheckpoint();
+            } catch (IOException e) {
+                checkpointRequested = true; // Retried with the next save
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Writes a checkpoint: the shards of changed courses, the time log store if any log
+     * changed, and a manifest; then drops the journal records it covers.
+     * The journal position is captured before the dirty sets are drained, and mutations
+     * publish their snapshot and mark themselves dirty before they are journaled, so every
+     * change is either in this checkpoint or still in the journal (replay is idempotent,
+     * so both is fine too). Only the published snapshot is read here, never the live
+     * lists the UI thread keeps modifying.
+     */
+    private void writeCheckpoint() throws IOException {
+        long checkpointSeq = journal.getLastSeq();
+        Set<EntityId> changedIds;
+        Set<EntityId> deletedIds;
+        boolean logsChanged;
+        DataSnapshot current;
+        synchronized (dirtyLock) {
+            changedIds = dirtyCourseIds;
+            deletedIds = deletedCourseIds;
+            logsChanged = timeLogsDirty;
+            dirtyCourseIds = new HashSet<>();
+            deletedCourseIds = new HashSet<>();
+            timeLogsDirty = false;
+            current = snapshot;
+        }
+
+        try {
+            List<Course> changedCourses = new ArrayList<>();
+            for (EntityId courseId : changedIds) {
+                Course course = current.getCourse(courseId);
+                if (course != null) {
+                    changedCourses.add(course);
+                }
+            }
+            // Shards are named by the textual form of the course ID
+            List<String> courseOrder = current.getCourses().stream().map(Course::getId).collect(Collectors.toList());
+            List<String> deletedNames = deletedIds.stream().map(EntityId::toString).collect(Collectors.toList());
+            TimeLogStore.Snapshot logs = current.getTimeLogs();
+            store.save(changedCourses, deletedNames, courseOrder, logsChanged ? logs.getRecent() : null,
+                    currentArchive(logs), checkpointSeq);
+        } catch (IOException | RuntimeException e) {
+            synchronized (dirtyLock) { // Keep everything dirty for the retry
+                dirtyCourseIds.addAll(changedIds);
+                deletedCourseIds.addAll(deletedIds);
+                timeLogsDirty |= logsChanged;
+            }
+            throw e;
+        }
+        journal.discardThrough(checkpointSeq);
+
+        File legacyFile = new File(LEGACY_DATA_FILE);
+        if (legacyFile.exists() && !legacyFile.renameTo(new File(LEGACY_DATA_FILE + ".migrated"))) {
+            System.err.println("Could not rename " + LEGACY_DATA_FILE + " after migrating it to " + DATA_DIR);
+        }
+        System.out.println("Data saved successfully to " + DATA_DIR + " (" + changedCourses(changedIds.size())
+                + (logsChanged ? ", time logs" : "") + ")");
+    }
+
+    /**
+     * Runs on the persistence thread. Deleting a resource only hides its archived logs,
+     * so that the write lock is not held while the archive is rewritten; the archive
+     * version a checkpoint names is written here instead, once per set of removals.
+     * @return The archive version without the logs of removed resources; null if none.
+     */
+    private TimeLogArchive currentArchive(TimeLogStore.Snapshot logs) throws IOException {
+        TimeLogArchive archive = logs.getArchive();
+        Set<EntityId> removed = logs.getRemovedFromArchive();
+        if (archive == null || removed.isEmpty()) {
+            return archive;
+        }
+        if (archive != compactedFrom || !removed.equals(compactedWithout)) {
+            compactedArchive = archive.rewrite(Collections.emptyList(), removed);
+            compactedFrom = archive;
+            compactedWithout = removed;
+        }
+        return compactedArchive;
+    }
+
+    private static String changedCourses(int count) {
+        return count == 1 ? "1 course shard" : count + " course shards";
+    }
+
+    /**
+     * Publishes a new snapshot containing the current state of the given course and marks
+     * its shard dirty. Called by every mutation before it is journaled.
+     */
+    private void courseChanged(Course course) {
+        synchronized (dirtyLock) {
+            snapshot = snapshot.withCourse(course);
+            dirtyCourseIds.add(course.getEntityId());
+        }
+    }
+
+    /**
+     * Like courseChanged, for a change to a single resource of the course (added or
+     * modified): only that resource is frozen again, see DataSnapshot.withResource.
+     */
+    private void resourceChanged(Course course, EntityId resourceId) {
+        synchronized (dirtyLock) {
+            snapshot = snapshot.withResource(course, resourceId);
+            dirtyCourseIds.add(course.getEntityId());
+        }
+    }
+
+    /**
+     * @param logsChanged Whether the deletion also removed time logs; both changes are
+     *                    then published together as one snapshot.
+     */
+    private void courseDeleted(EntityId courseId, boolean logsChanged) {
+        synchronized (dirtyLock) {
+            DataSnapshot next = snapshot.withoutCourse(courseId);
+            if (logsChanged) {
+                next = next.withTimeLogs(timeLogs.snapshot());
+                timeLogsDirty = true;
+            }
+            snapshot = next;
+            dirtyCourseIds.remove(courseId);
+            deletedCourseIds.add(courseId);
+        }
+    }
+
+    /**
+     * Publishes the courses changed by one bulk operation (and the time logs, if they
+     * changed too) as one snapshot.
+     */
+    private void coursesChanged(Collection<Course> changedCourses, boolean logsChanged) {
+        synchronized (dirtyLock) {
+            DataSnapshot next = snapshot;
+            for (Course course : changedCourses) {
+                next = next.withCourse(course);
+                dirtyCourseIds.add(course.getEntityId());
+            }
+            if (logsChanged) {
+                next = next.withTimeLogs(timeLogs.snapshot());
+                timeLogsDirty = true;
+            }
+            snapshot = next;
+        }
+    }
+
+    private void timeLogsChanged() {
+        synchronized (dirtyLock) {
+            snapshot = snapshot.withTimeLogs(timeLogs.snapshot());
+            timeLogsDirty = true;
+        }
+    }
+
+    // The markXxx methods below only record dirty state. They are used while replaying the
+    // journal, after which loadData() publishes one snapshot for the whole result.
+
+    private void markCourseDirty(EntityId courseId) {
+        synchronized (dirtyLock) {
+            dirtyCourseIds.add(courseId);
+        }
+    }
+
+    private void markCourseDeleted(EntityId courseId) {
+        synchronized (dirtyLock) {
+            dirtyCourseIds.remove(courseId);
+            deletedCourseIds.add(courseId);
+        }
+    }
+
+    private void markTimeLogsDirty() {
+        synchronized (dirtyLock) {
+            timeLogsDirty = true;
+        }
+    }
+
+    private void markAllDirty() {
+        synchronized (dirtyLock) {
+            for (Course course : courses) {
+                dirtyCourseIds.add(course.getEntityId());
+            }
+            timeLogsDirty = true;
         }
     }
 
-    @SuppressWarnings("unchecked") // Suppress warning for unchecked cast from readObject
     public void loadData() {
-        File file = new File(DATA_FILE);
-        if (file.exists() && file.length() > 0) { // Check if file exists and is not empty
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(DATA_FILE))) {
-                courses = (List<Course>) ois.readObject();
-                timeLogs = (List<TimeLog>) ois.readObject();
-                System.out.println("Data loaded successfully from " + DATA_FILE);
-            } catch (IOException | ClassNotFoundException e) {
+        if (write(this::loadDataLocked)) {
+            saveDataInBackground();
+        }
+    }
+
+    /**
+     * @return true if the loaded data has to be saved again, e.g. after migrating it.
+     */
+    private boolean loadDataLocked() {
+        scheduler = SchedulerSettings.read(new File(DATA_DIR, SCHEDULER_FILE));
+        this.courses = PersistentList.empty();
+        this.timeLogs = new TimeLogStore();
+        timeLogs.attachArchive(store.emptyArchive());
+        long snapshotSeq = 0;
+        boolean migrate = false;
+        boolean loadedShards = false;
+
+        File legacyFile = new File(LEGACY_DATA_FILE);
+        if (store.exists() || (legacyFile.exists() && legacyFile.length() > 0)) {
+            try {
+                DataCodec.Contents contents;
+                if (store.exists()) {
+                    contents = store.load();
+                    System.out.println("Data loaded successfully from " + DATA_DIR);
+                } else {
+                    contents = DataCodec.readLegacyDataFile(legacyFile);
+                    migrate = true;
+                    System.out.println("Data loaded successfully from " + LEGACY_DATA_FILE);
+                }
+                courses = PersistentList.of(contents.courses);
+                timeLogs = new TimeLogStore();
+                timeLogs.attachArchive(contents.timeLogArchive != null ? contents.timeLogArchive : store.emptyArchive());
+                for (TimeLog log : contents.timeLogs) {
+                    timeLogs.add(log);
+                }
+                snapshotSeq = contents.checkpointSeq;
+                loadedShards = !migrate;
+            } catch (IOException e) {
                 System.err.println("Error loading data: " + e.getMessage());
                 e.printStackTrace();
                 // Optionally, clear existing data if load fails to prevent corrupted state
-                this.courses = new ArrayList<>();
-                this.timeLogs = new ArrayList<>();
+                this.courses = PersistentList.empty();
+                this.timeLogs = new TimeLogStore();
+                timeLogs.attachArchive(store.emptyArchive());
             }
         } else {
             System.out.println("No existing data file found or file is empty. Starting with fresh data.");
         }
+
+        rebuildIndexes();
+        int replayed = journal.replay(snapshotSeq, new JournalReplayer());
+        if (replayed > 0) {
+            System.out.println("Replayed " + replayed + " journal records from " + JOURNAL_FILE);
+        }
+        if (loadedShards) { // Not after a failed load, which would leave every blob looking unused
+            store.removeUnusedBlobs(courses);
+        }
+        boolean archived = archiveOldTimeLogs();
+        synchronized (dirtyLock) {
+            long version = snapshot != null ? snapshot.getVersion() + 1 : 0;
+            snapshot = DataSnapshot.of(courses, timeLogs.snapshot(), version);
+        }
+        announce(DataChangeEvent.Kind.DATA_LOADED, null, null);
+        if (migrate) {
+            System.out.println("Migrating " + LEGACY_DATA_FILE + " to per-course shards in " + DATA_DIR);
+            markAllDirty();
+            return true;
+        }
+        return archived; // If so, save so that the manifest names the new archive
     }
 
     /**
-     * Initiates data saving in a background thread using SwingWorker.
-     * This prevents the UI from freezing during the save operation.
+     * Moves time logs older than archiveAfterDays to the off-heap archive.
+     * @return true if any log was moved.
      */
-    public void saveDataInBackground() {
-        // SwingWorker<ReturnTypeOfDoInBackground, TypeOfPublishProgress>
-        // Void is used because saveData() doesn't return anything.
-        // Void is used for progress as we're not reporting incremental progress.
-        new SwingWorker<Void, Void>() {
-            @Override
-            protected Void doInBackground() throws Exception {
-                // This code runs on a background thread
-                System.out.println("Saving data in background...");
-                saveData(); // Call the synchronous save method
-                return null; // No return value needed
-            }
-
-            @Override
-            protected void done() {
-                // This code runs back on the Event Dispatch Thread (EDT)
-                // after doInBackground() completes (either successfully or with an error).
+    private boolean archiveOldTimeLogs() {
+        if (archiveAfterDays <= 0) {
+            return false;
+        }
+        try {
+            int archived = timeLogs.archiveOlderThan(LocalDate.now().minusDays(archiveAfterDays));
+            if (archived > 0) {
+                System.out.println("Archived " + archived + " time logs older than " + archiveAfterDays + " days");
+                markTimeLogsDirty();
+                return true;
+            }
+        } catch (IOException e) {
+            System.err.println("Error archiving old time logs: " + e.getMessage());
+        }
+        return false;
+    }
+
+    // --- Change Events ---
+
+    public void addChangeListener(DataChangeEvent.Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(DataChangeEvent.Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queues an event for delivery once the current mutation has released the write lock.
+     * Only called while holding it.
+     */
+    private void announce(DataChangeEvent.Kind kind, EntityId courseId, EntityId resourceId) {
+        pendingEvents.add(new DataChangeEvent(kind, courseId, resourceId));
+    }
+
+    private void deliver(List<DataChangeEvent> events) {
+        for (DataChangeEvent event : events) {
+            for (DataChangeEvent.Listener listener : listeners) {
                 try {
-                    get(); // Check for exceptions that occurred during doInBackground()
-                    System.out.println("Background save complete.");
-                } catch (Exception e) {
-                    System.err.println("Error during background save: " + e.getMessage());
+                    listener.dataChanged(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Error in data change listener: " + e.getMessage());
                     e.printStackTrace();
-                    // You might want to show a JOptionPane here, but be careful with
-                    // showing UI from within DataManager; usually, the UI component
-                    // calling this would handle error display.
                 }
             }
-        }.execute(); // Start the SwingWorker
+        }
+    }
+
+    /**
+     * Called after every mutation once it has been appended to the journal.
+     * Falls back to a full save if the journal could not be written, and writes a
+     * checkpoint once enough records have accumulated.
+     */
+    private void persistChange(boolean journaled) {
+        if (!journaled) {
+            checkpointRequested = true;
+        }
+        persistence.markDirty();
+    }
+
+    /**
+     * Requests a full snapshot on the persistence thread. Calls made within the
+     * coalescing window are folded into a single save, and at most one save runs at a time.
+     */
+    public void saveDataInBackground() {
+        checkpointRequested = true;
+        persistence.markDirty();
+    }
+
+    /**
+     * Saves all pending changes now and waits until they are on disk, including those
+     * of xxxAsync mutations submitted before the call.
+     * @return true if every change made before the call is durable.
+     */
+    public boolean flush() {
+        if (!commands.awaitIdle(SHUTDOWN_FLUSH_TIMEOUT_MILLIS)) {
+            return false;
+        }
+        return persistence.flush(SHUTDOWN_FLUSH_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Waits (without forcing an early save) until all changes made so far are durable.
+     */
+    public boolean awaitDurable(long timeoutMillis) {
+        return persistence.awaitDurable(timeoutMillis);
+    }
+
+    /**
+     * Applies queued mutations, writes a final snapshot, stops the writer and
+     * persistence threads and closes the journal.
+     * Call once when the application exits.
+     * @return true if all changes were saved; if not, nothing is stopped.
+     */
+    public boolean shutdown() {
+        if (!commands.awaitIdle(SHUTDOWN_FLUSH_TIMEOUT_MILLIS)) {
+            return false;
+        }
+        checkpointRequested = true;
+        persistence.markDirty();
+        if (!persistence.shutdown(SHUTDOWN_FLUSH_TIMEOUT_MILLIS)) {
+            return false;
+        }
+        commands.shutdown(SHUTDOWN_FLUSH_TIMEOUT_MILLIS);
+        journal.close();
+        return true;
     }
 
 
     // --- Course Management ---
 
+    private void rebuildIndexes() {
+        coursesById.clear();
+        resourcesById.clear();
+        courseIdByResourceId.clear();
+        dueIndex.clear();
+        for (Course course : courses) {
+            trackCourse(course);
+        }
+    }
+
+    // The search index is not one of these: it follows the change events, see SearchIndex
+    private void trackCourse(Course course) {
+        coursesById.put(course.getEntityId(), course);
+        for (Resource resource : course.getResources()) {
+            trackResource(course.getEntityId(), resource);
+        }
+    }
+
+    private void untrackCourse(Course course) {
+        coursesById.remove(course.getEntityId());
+        for (Resource resource : course.getResources()) {
+            untrackResource(resource.getEntityId());
+        }
+    }
+
+    private void trackResource(EntityId courseId, Resource resource) {
+        resourcesById.put(resource.getEntityId(), resource);
+        courseIdByResourceId.put(resource.getEntityId(), courseId);
+        dueIndex.update(resource);
+    }
+
+    private void untrackResource(EntityId resourceId) {
+        resourcesById.remove(resourceId);
+        courseIdByResourceId.remove(resourceId);
+        dueIndex.remove(resourceId);
+    }
+
+    /**
+     * Removes all time logs of the given resources.
+     * @return The number of time logs removed.
+     */
+    private int removeTimeLogsFor(Collection<EntityId> resourceIds) {
+        return timeLogs.removeResources(resourceIds);
+    }
+
+    /**
+     * Removes a course together with its resources and all of their time logs, in one
+     * pass over the time logs.
+     * @return The number of time logs removed.
+     */
+    private int removeCourseCascade(Course course) {
+        courses = courses.minus(courses.indexOf(course));
+        untrackCourse(course);
+        List<EntityId> resourceIds = new ArrayList<>();
+        for (Resource resource : course.getResources()) {
+            resourceIds.add(resource.getEntityId());
+        }
+        return removeTimeLogsFor(resourceIds);
+    }
+
+    // --- Locking ---
+
+    private long writeLock() {
+        waitingWriters.incrementAndGet();
+        try {
+            return lock.writeLock();
+        } finally {
+            waitingWriters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs a mutation under the write lock.
+     */
+    private <T> T write(Supplier<T> mutation) {
+        long stamp = writeLock();
+        List<DataChangeEvent> events = null;
+        try {
+            return mutation.get();
+        } finally {
+            allResources = null;
+            dueIndex.trackDueOn(LocalDate.now()); // Only here, as counting under the read lock must not change it
+            if (!pendingEvents.isEmpty()) {
+                events = pendingEvents;
+                pendingEvents = new ArrayList<>();
+            }
+            lock.unlockWrite(stamp);
+            if (events != null) {
+                deliver(events); // Unlocked, so listeners may query (or even modify) the data
+            }
+        }
+    }
+
+    /**
+     * Runs a query under the read lock. StampedLock lets new readers in while a writer
+     * waits, so a steady stream of background queries could hold off the UI thread's
+     * mutations indefinitely; readers therefore let a waiting writer go first.
+     */
+    private <T> T read(Supplier<T> query) {
+        while (waitingWriters.get() > 0 && !lock.isWriteLocked()) {
+            Thread.yield(); // Until the readers already inside are done and the writer is in
+        }
+        long stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs a short query without locking and keeps the result if no mutation started
+     * meanwhile; otherwise runs it again under the read lock. The query may see a map
+     * in the middle of a change, so it must only do lookups that cannot loop or leave
+     * state behind (a lookup that throws is simply retried).
+     */
+    private <T> T lookup(Supplier<T> query) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = query.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Saw a half-made change; retried under the lock below
+            }
+        }
+        return read(query);
+    }
+
+    // Unlocked lookups for use while a lock is held
+
+    private Course course(EntityId id) {
+        return id != null ? coursesById.get(id) : null;
+    }
+
+    private Resource resource(EntityId id) {
+        return id != null ? resourcesById.get(id) : null;
+    }
+
+    private Course parentCourse(EntityId resourceId) {
+        return resourceId != null ? course(courseIdByResourceId.get(resourceId)) : null;
+    }
+
+    /**
+     * @return The data as of the last completed mutation. Immutable, so a background job
+     *         may read as much of it as it likes without holding up the UI.
+     */
+    public DataSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Pins the data as of the last completed mutation for a long-running job, which can
+     * then query it without locks and without seeing later changes. Close it when done.
+     */
+    public PinnedSnapshot pinSnapshot() {
+        return new PinnedSnapshot(snapshot, pinnedVersions);
+    }
+
+    /**
+     * @return The number of pinned snapshots not yet closed.
+     */
+    public int getPinnedSnapshotCount() {
+        return pinnedVersions.size();
+    }
+
+    /**
+     * @return The oldest version still pinned, or -1 if none is; shows how far the
+     *         slowest job lags behind the current version.
+     */
+    public long getOldestPinnedVersion() {
+        long oldest = -1;
+        for (long version : pinnedVersions.values()) {
+            oldest = oldest < 0 ? version : Math.min(oldest, version);
+        }
+        return oldest;
+    }
+
+    /**
+     * @return An immutable view of the courses in O(1); later changes are not visible
+     *         through it. Copy it to sort it.
+     */
     public List<Course> getAllCourses() {
-        return new ArrayList<>(courses); // Return a copy to prevent external modification of the internal list
+        return lookup(() -> courses);
     }
 
     public void addCourse(Course course) {
-        if (course != null && !courses.contains(course)) {
-            courses.add(course);
-            saveDataInBackground(); // Changed to background save
+        write(() -> addCourseLocked(course));
+    }
+
+    /**
+     * Queues the addition for the writer thread, see DataCommandQueue.
+     * @return Completes with true if the course was added, false if it already existed.
+     */
+    public CompletableFuture<Boolean> addCourseAsync(Course course) {
+        return commands.submit(() -> addCourseLocked(course));
+    }
+
+    private boolean addCourseLocked(Course course) {
+        if (course == null || coursesById.containsKey(course.getEntityId())) {
+            return false;
         }
+        courses = courses.plus(course);
+        trackCourse(course);
+        courseChanged(course);
+        persistChange(journal.appendAddCourse(course));
+        announce(DataChangeEvent.Kind.COURSE_ADDED, course.getEntityId(), null);
+        return true;
     }
 
     public Course getCourseById(String id) {
-        return courses.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return id != null ? getCourseById(EntityId.fromString(id)) : null;
+    }
+
+    public Course getCourseById(EntityId id) {
+        return id != null ? lookup(() -> coursesById.get(id)) : null;
     }
 
     public boolean updateCourse(Course updatedCourse) {
+        return write(() -> updateCourseLocked(updatedCourse));
+    }
+
+    public CompletableFuture<Boolean> updateCourseAsync(Course updatedCourse) {
+        return commands.submit(() -> updateCourseLocked(updatedCourse));
+    }
+
+    private boolean updateCourseLocked(Course updatedCourse) {
         if (updatedCourse == null) return false;
-        for (int i = 0; i < courses.size(); i++) {
-            if (courses.get(i).getId().equals(updatedCourse.getId())) {
-                courses.set(i, updatedCourse);
-                saveDataInBackground(); // Changed to background save
-                return true;
-            }
+        Course existing = coursesById.get(updatedCourse.getEntityId());
+        if (existing == null) {
+            return false;
         }
-        return false;
+        if (existing != updatedCourse) { // The edit dialog modifies the stored instance in place
+            courses = courses.with(courses.indexOf(existing), updatedCourse);
+            untrackCourse(existing);
+            trackCourse(updatedCourse);
+        }
+        courseChanged(updatedCourse);
+        persistChange(journal.appendUpdateCourse(updatedCourse));
+        announce(DataChangeEvent.Kind.COURSE_UPDATED, updatedCourse.getEntityId(), null);
+        return true;
     }
 
     public boolean deleteCourse(String courseId) {
-        boolean removed = courses.removeIf(c -> c.getId().equals(courseId));
-        if (removed) {
-            // Also remove all resources and time logs associated with this course
-            // This is a simplistic approach; a more robust solution might handle orphaned resources differently
-            List<String> resourceIdsToRemove = new ArrayList<>();
-            getAllResources().stream()
-                    .filter(r -> getCourseForResource(r) != null && getCourseForResource(r).getId().equals(courseId))
-                    .forEach(r -> resourceIdsToRemove.add(r.getId()));
+        return deleteCourseCascade(courseId) != null;
+    }
 
-            for(String resId : resourceIdsToRemove) {
-                deleteResource(resId); // This will remove resource and its logs
-            }
-            saveDataInBackground(); // Changed to background save
+    /**
+     * What a course deletion removed along with the course.
+     */
+    public static class CourseDeletion {
+        public final int resourceCount;
+        public final int timeLogCount;
+
+        CourseDeletion(int resourceCount, int timeLogCount) {
+            this.resourceCount = resourceCount;
+            this.timeLogCount = timeLogCount;
         }
-        return removed;
+    }
+
+    /**
+     * Deletes a course with all its resources and their time logs as one change: a single
+     * pass over the time logs, one published snapshot and one journal record (replay
+     * repeats the cascade), so it costs one save no matter how large the course is.
+     * @return The number of resources and time logs removed, or null if there is no such course.
+     */
+    public CourseDeletion deleteCourseCascade(String courseId) {
+        return write(() -> deleteCourseCascadeLocked(courseId));
+    }
+
+    /**
+     * @return Completes with what was removed, or with null if there is no such course.
+     */
+    public CompletableFuture<CourseDeletion> deleteCourseCascadeAsync(String courseId) {
+        return commands.submit(() -> deleteCourseCascadeLocked(courseId));
+    }
+
+    private CourseDeletion deleteCourseCascadeLocked(String courseId) {
+        Course removedCourse = courseId != null ? course(EntityId.fromString(courseId)) : null;
+        if (removedCourse == null) {
+            return null;
+        }
+        int resourceCount = removedCourse.getResources().size();
+        int timeLogCount = removeCourseCascade(removedCourse);
+        courseDeleted(removedCourse.getEntityId(), timeLogCount > 0);
+        persistChange(journal.appendDeleteCourse(removedCourse.getId()));
+        announce(DataChangeEvent.Kind.COURSE_DELETED, removedCourse.getEntityId(), null);
+        return new CourseDeletion(resourceCount, timeLogCount);
     }
 
     // --- Resource Management (through Courses) ---
 
-    // Get all resources from all courses
+    /**
+     * Get all resources from all courses, as an immutable list. A view over the courses'
+     * resource lists, which are immutable themselves, so it costs O(#courses) to take
+     * rather than a copy of every resource; and it is taken once per change to the data.
+     */
     public List<Resource> getAllResources() {
-        return courses.stream()
-                .flatMap(course -> course.getResources().stream())
-                .collect(Collectors.toList());
+        List<Resource> cached = allResources;
+        if (cached != null) {
+            return cached;
+        }
+        return read(() -> {
+            List<List<Resource>> resourceLists = new ArrayList<>(courses.size());
+            for (Course course : courses) {
+                resourceLists.add(course.getResources());
+            }
+            List<Resource> result = new ConcatenatedList<>(resourceLists);
+            allResources = result; // A mutation waiting for the lock will drop it again
+            return result;
+        });
     }
 
-    // Get resources for a specific course
+    // Immutable lists one after the other, as a single list
+    private static final class ConcatenatedList<T> extends AbstractList<T> implements RandomAccess {
+        private final List<List<T>> parts;
+        private final int[] ends; // Index after the last element of each part
+
+        ConcatenatedList(List<List<T>> parts) {
+            this.parts = parts;
+            this.ends = new int[parts.size()];
+            int size = 0;
+            for (int i = 0; i < ends.length; i++) {
+                size += parts.get(i).size();
+                ends[i] = size;
+            }
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            int low = 0;
+            int high = ends.length - 1;
+            while (low < high) { // The first part that ends after the index
+                int mid = (low + high) >>> 1;
+                if (ends[mid] <= index) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return parts.get(low).get(index - (low > 0 ? ends[low - 1] : 0));
+        }
+
+        @Override
+        public int size() {
+            return ends.length > 0 ? ends[ends.length - 1] : 0;
+        }
+    }
+
+    /**
+     * Get resources for a specific course, as an immutable view in O(1) that later
+     * changes do not affect (see Course.getResources()). Copy it to sort it.
+     */
     public List<Resource> getResourcesForCourse(String courseId) {
-        Course course = getCourseById(courseId);
-        return course != null ? new ArrayList<>(course.getResources()) : new ArrayList<>();
+        if (courseId == null) return Collections.emptyList();
+        EntityId id = EntityId.fromString(courseId);
+        return lookup(() -> {
+            Course course = course(id);
+            return course != null ? course.getResources() : Collections.<Resource>emptyList();
+        });
     }
 
     public Resource getResourceById(String resourceId) {
-        return getAllResources().stream()
-                .filter(r -> r.getId().equals(resourceId))
-                .findFirst()
-                .orElse(null);
+        return resourceId != null ? getResourceById(EntityId.fromString(resourceId)) : null;
+    }
+
+    public Resource getResourceById(EntityId resourceId) {
+        return resourceId != null ? lookup(() -> resourcesById.get(resourceId)) : null;
     }
 
     // Important: Adding a resource implies adding it to a specific course
     public boolean addResourceToCourse(String courseId, Resource resource) {
-        Course course = getCourseById(courseId);
+        return write(() -> addResourceToCourseLocked(courseId, resource));
+    }
+
+    public CompletableFuture<Boolean> addResourceToCourseAsync(String courseId, Resource resource) {
+        return commands.submit(() -> addResourceToCourseLocked(courseId, resource));
+    }
+
+    private boolean addResourceToCourseLocked(String courseId, Resource resource) {
+        Course course = courseId != null ? course(EntityId.fromString(courseId)) : null;
         if (course != null && resource != null) {
-            course.addResource(resource);
-            saveDataInBackground(); // Changed to background save
+            DataChangeEvent.Kind kind = DataChangeEvent.Kind.RESOURCE_UPDATED; // Already there: stored again as given
+            if (!resourcesById.containsKey(resource.getEntityId())) {
+                course.addResource(resource);
+                trackResource(course.getEntityId(), resource);
+                kind = DataChangeEvent.Kind.RESOURCE_ADDED;
+            }
+            resourceChanged(course, resource.getEntityId());
+            persistChange(journal.appendAddResource(courseId, resource));
+            announce(kind, course.getEntityId(), resource.getEntityId());
             return true;
         }
         return false;
@@ -184,28 +929,51 @@ public class DataManager {
 
     // Important: Updating a resource must update it within its parent course's list
     public boolean updateResource(Resource updatedResource) {
+        return write(() -> updateResourceLocked(updatedResource));
+    }
+
+    public CompletableFuture<Boolean> updateResourceAsync(Resource updatedResource) {
+        return commands.submit(() -> updateResourceLocked(updatedResource));
+    }
+
+    private boolean updateResourceLocked(Resource updatedResource) {
         if (updatedResource == null) return false;
-        for (Course course : courses) {
-            if (course.updateResource(updatedResource)) { // Course's updateResource handles finding by ID
-                saveDataInBackground(); // Changed to background save
-                return true;
-            }
+        Course course = parentCourse(updatedResource.getEntityId());
+        if (course != null && course.updateResource(updatedResource)) { // Course's updateResource handles finding by ID
+            trackResource(course.getEntityId(), updatedResource); // Text and next review date may have been edited
+            resourceChanged(course, updatedResource.getEntityId());
+            persistChange(journal.appendUpdateResource(updatedResource));
+            announce(DataChangeEvent.Kind.RESOURCE_UPDATED, course.getEntityId(), updatedResource.getEntityId());
+            return true;
         }
         return false;
     }
 
     public boolean deleteResource(String resourceId) {
+        return write(() -> deleteResourceLocked(resourceId));
+    }
+
+    public CompletableFuture<Boolean> deleteResourceAsync(String resourceId) {
+        return commands.submit(() -> deleteResourceLocked(resourceId));
+    }
+
+    private boolean deleteResourceLocked(String resourceId) {
+        if (resourceId == null) return false;
+        EntityId id = EntityId.fromString(resourceId);
         boolean deletedFromAnyCourse = false;
-        for (Course course : courses) {
-            if (course.removeResource(resourceId)) {
-                deletedFromAnyCourse = true;
-                break; // Resource found and removed from this course
-            }
+        Course course = parentCourse(id);
+        if (course != null && course.removeResource(id)) {
+            untrackResource(id);
+            deletedFromAnyCourse = true;
+            courseChanged(course);
         }
         if (deletedFromAnyCourse) {
             // Also remove associated time logs
-            timeLogs.removeIf(log -> log.getResourceId().equals(resourceId));
-            saveDataInBackground(); // Changed to background save
+            if (removeTimeLogsFor(Collections.singletonList(id)) > 0) {
+                timeLogsChanged();
+            }
+            persistChange(journal.appendDeleteResource(resourceId));
+            announce(DataChangeEvent.Kind.RESOURCE_DELETED, course.getEntityId(), id);
             return true;
         }
         return false;
@@ -214,30 +982,81 @@ public class DataManager {
     // Utility to get the parent course of a resource
     public Course getCourseForResource(Resource resource) {
         if (resource == null) return null;
-        return courses.stream()
-                .filter(c -> c.getResources().contains(resource))
-                .findFirst()
-                .orElse(null);
+        EntityId resourceId = resource.getEntityId();
+        return lookup(() -> parentCourse(resourceId));
+    }
+
+
+    // --- Search ---
+
+    /**
+     * Searches course names and descriptions and resource titles, descriptions and note
+     * contents. Safe to call from a background thread; an interrupted search returns early.
+     * @param query Words to look for; each one may be the beginning of a word.
+     * @param limit The maximum number of results.
+     * @return The best matches, highest score first.
+     */
+    public List<SearchIndex.Result> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Suggests course names and resource titles for a partly typed (or mistyped) query,
+     * e.g. "lin alg" for "Linear Algebra Lecture 3". Safe to call from a background thread.
+     */
+    public List<SearchIndex.Result> completeTitle(String query, int limit) {
+        return searchIndex.complete(query, limit);
     }
 
 
     // --- TimeLog Management ---
 
+    /**
+     * @return A read-only view of all time logs, archived ones included. The logs are
+     *         stored in columns or off the heap, and each get() creates a TimeLog, so
+     *         prefer the per-resource and date-range queries.
+     */
     public List<TimeLog> getAllTimeLogs() {
-        return new ArrayList<>(timeLogs); // Return a copy
+        return read(() -> timeLogs.snapshot());
     }
 
     public void recordTimeLog(TimeLog log) {
-        if (log != null) {
-            timeLogs.add(log);
-            saveDataInBackground(); // Changed to background save
-        }
+        write(() -> recordTimeLogLocked(log));
+    }
+
+    public CompletableFuture<Boolean> recordTimeLogAsync(TimeLog log) {
+        return commands.submit(() -> recordTimeLogLocked(log));
+    }
+
+    private boolean recordTimeLogLocked(TimeLog log) {
+        if (log == null) return false;
+        timeLogs.add(log);
+        timeLogsChanged();
+        persistChange(journal.appendTimeLog(log));
+        Course course = parentCourse(log.getResourceEntityId());
+        announce(DataChangeEvent.Kind.TIME_LOG_RECORDED, course != null ? course.getEntityId() : null,
+                log.getResourceEntityId());
+        return true;
     }
 
     public List<TimeLog> getTimeLogsForResource(String resourceId) {
-        return timeLogs.stream()
-                .filter(log -> log.getResourceId().equals(resourceId))
-                .collect(Collectors.toList());
+        if (resourceId == null) return new ArrayList<>();
+        EntityId id = EntityId.fromString(resourceId);
+        return read(() -> timeLogs.getForResource(id)); // Freshly created, so the caller may modify it
+    }
+
+    /**
+     * @return The time logs dated between from and to (both inclusive), in date order.
+     */
+    public List<TimeLog> getTimeLogsBetween(LocalDate from, LocalDate to) {
+        return read(() -> timeLogs.getBetween(from, to));
+    }
+
+    /**
+     * @return The date of the most recent time log, or null if nothing has been logged.
+     */
+    public LocalDate getLastTimeLogDate() {
+        return read(() -> timeLogs.getLastDate());
     }
 
     /**
@@ -247,60 +1066,218 @@ public class DataManager {
      * @param quality The quality of recall (0-5, as defined in ResourceReviewPanel).
      */
     public void markResourceAsReviewed(String resourceId, int quality) {
-        Resource resource = getResourceById(resourceId); // Use existing helper
+        write(() -> markResourceAsReviewedLocked(resourceId, quality));
+    }
+
+    /**
+     * Queues the review for the writer thread. Answers given in quick succession are
+     * applied together, under one lock and with one save.
+     * @return Completes with true once the review is applied, false if there is no such resource.
+     */
+    public CompletableFuture<Boolean> markResourceAsReviewedAsync(String resourceId, int quality) {
+        return commands.submit(() -> markResourceAsReviewedLocked(resourceId, quality));
+    }
+
+    private boolean markResourceAsReviewedLocked(String resourceId, int quality) {
+        Resource resource = resourceId != null ? resource(EntityId.fromString(resourceId)) : null;
         if (resource != null) {
-            // 1. Update Spaced Repetition System (SRS) properties
-            // This is a simplified example; a real SRS algorithm (e.g., SM-2) would be more complex.
-            double newEaseFactor = resource.getEaseFactor() + (0.1 - (5 - quality) * (0.08 + (5 - quality) * 0.02));
-            if (newEaseFactor < 1.3) newEaseFactor = 1.3; // Minimum ease factor
-            resource.setEaseFactor(newEaseFactor);
-
-            int newInterval;
-            if (quality < 3) { // Forgot or hard - reset interval or shorter interval
-                newInterval = 1;
-            } else if (resource.getReviewIntervalDays() == 0) { // First successful review
-                newInterval = 1; // Example: First interval is 1 day
-            } else if (resource.getReviewIntervalDays() == 1) { // Second successful review
-                newInterval = 6; // Example: Second interval is 6 days
-            } else {
-                newInterval = (int) Math.round(resource.getReviewIntervalDays() * newEaseFactor);
-            }
-            resource.setReviewIntervalDays(newInterval);
-
-            // 2. Update last reviewed date and calculate next review date
-            LocalDate today = LocalDate.now();
-            resource.setLastReviewedDate(today);
-            resource.setNextReviewDate(today.plusDays(newInterval));
-
-            // 3. Log the time (assuming a fixed duration for simplicity, or add a duration parameter)
-            // For this example, let's just log a nominal duration (e.g., 5 minutes = 300 seconds).
-            TimeLog newLog = new TimeLog(resourceId, 300, today);
-            timeLogs.add(newLog);
-
-            // Important: After updating the resource's properties, ensure the change is saved
-            // Since resources are within courses, updating the resource alone won't
-            // trigger a save unless the `updateResource` method is called, which
-            // you already have. Let's make sure it's called.
-            updateResource(resource); // Call existing updateResource to persist changes to the resource
-            // This internally calls saveDataInBackground()
+            // Nominal duration, as a single review is not timed (review sessions use markResourcesAsReviewed)
+            TimeLog newLog = applyReview(resource, quality, DEFAULT_REVIEW_SECONDS, LocalDate.now());
+
+            Course parentCourse = parentCourse(resource.getEntityId());
+            if (parentCourse != null) {
+                resourceChanged(parentCourse, resource.getEntityId());
+            }
+            timeLogsChanged();
+
+            // Journal only the new log and the changed SRS fields instead of the whole resource
+            boolean journaled = journal.appendTimeLog(newLog);
+            journaled &= journal.appendSrsUpdate(resource);
+            persistChange(journaled);
+            announce(DataChangeEvent.Kind.REVIEW_RECORDED, parentCourse != null ? parentCourse.getEntityId() : null,
+                    resource.getEntityId());
+            return true;
         } else {
             System.err.println("Error: Resource with ID " + resourceId + " not found for review.");
+            return false;
         }
     }
 
+    /**
+     * One answer given in a review session, for markResourcesAsReviewed.
+     */
+    public static class ReviewGrade {
+        public final String resourceId;
+        public final int quality;           // 0-5, as in markResourceAsReviewed
+        public final long durationSeconds;  // Time spent on the resource
+
+        public ReviewGrade(String resourceId, int quality, long durationSeconds) {
+            this.resourceId = resourceId;
+            this.quality = quality;
+            this.durationSeconds = durationSeconds;
+        }
+    }
+
+    /**
+     * Applies a whole batch of reviews as one change: one lock, one new snapshot, one
+     * journal write and one save, however many grades there are. Grades for resources
+     * that no longer exist are skipped.
+     * @return The number of grades applied.
+     */
+    public int markResourcesAsReviewed(List<ReviewGrade> grades) {
+        return write(() -> markResourcesAsReviewedLocked(grades));
+    }
+
+    /**
+     * Queues the batch for the writer thread; see markResourcesAsReviewed.
+     * @return Completes with the number of grades applied.
+     */
+    public CompletableFuture<Integer> markResourcesAsReviewedAsync(List<ReviewGrade> grades) {
+        List<ReviewGrade> batch = new ArrayList<>(grades); // The caller may go on buffering into its list
+        return commands.submit(() -> markResourcesAsReviewedLocked(batch));
+    }
+
+    private int markResourcesAsReviewedLocked(List<ReviewGrade> grades) {
+        LocalDate today = LocalDate.now();
+        List<Resource> reviewed = new ArrayList<>(grades.size());
+        List<TimeLog> newLogs = new ArrayList<>(grades.size());
+        Map<EntityId, Course> changedCourses = new LinkedHashMap<>();
+        for (ReviewGrade grade : grades) {
+            Resource resource = grade.resourceId != null ? resource(EntityId.fromString(grade.resourceId)) : null;
+            if (resource == null) {
+                System.err.println("Error: Resource with ID " + grade.resourceId + " not found for review.");
+                continue;
+            }
+            newLogs.add(applyReview(resource, grade.quality, grade.durationSeconds, today));
+            reviewed.add(resource);
+            Course parentCourse = parentCourse(resource.getEntityId());
+            if (parentCourse != null) {
+                changedCourses.put(parentCourse.getEntityId(), parentCourse);
+            }
+        }
+        if (reviewed.isEmpty()) return 0;
+
+        coursesChanged(changedCourses.values(), true);
+        persistChange(journal.appendReviews(newLogs, reviewed));
+        for (Resource resource : reviewed) {
+            EntityId courseId = courseIdByResourceId.get(resource.getEntityId());
+            announce(DataChangeEvent.Kind.REVIEW_RECORDED, courseId, resource.getEntityId());
+        }
+        return reviewed.size();
+    }
+
+    /**
+     * Updates the resource's SRS properties and due date for one answer, using the current
+     * scheduler, and adds the time log of the review. Publishing and journaling the change
+     * is up to the caller.
+     * @return The new time log.
+     */
+    private TimeLog applyReview(Resource resource, int quality, long durationSeconds, LocalDate today) {
+        // 1. Update Spaced Repetition System (SRS) properties, including the next review date
+        reviewState.load(resource);
+        scheduler.review(reviewState, quality, today.toEpochDay());
+        reviewState.store(resource);
+        dueIndex.update(resource);
+
+        // 2. Log the time
+        TimeLog newLog = new TimeLog(resource.getEntityId(), durationSeconds, today, quality);
+        timeLogs.add(newLog);
+        return newLog;
+    }
+
+    public SrsScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Selects the algorithm used for reviews from now on and stores the choice with the
+     * data. Resources keep the schedule they already have until they are next reviewed,
+     * or until rescheduleAll() is called.
+     */
+    public void setScheduler(SrsScheduler scheduler) {
+        if (scheduler == null) throw new IllegalArgumentException("scheduler must not be null");
+        this.scheduler = scheduler;
+        try {
+            SchedulerSettings.write(new File(DATA_DIR, SCHEDULER_FILE), scheduler);
+        } catch (IOException e) {
+            System.err.println("Error saving scheduler settings: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes every resource's schedule by replaying its review history through the
+     * current scheduler, e.g. after its parameters changed. The replay runs on the common
+     * fork-join pool against the current snapshot, without holding any lock; the results
+     * are then applied under the write lock in one step, and written by one checkpoint.
+     * Resources reviewed meanwhile are replayed again from their history at that point.
+     * Takes a while for large collections: do not call it on the UI thread.
+     * @param listener Told about progress of the replay, from the pool's threads. May be null.
+     */
+    public Rescheduler.Result rescheduleAll(Rescheduler.ProgressListener listener) {
+        long start = System.currentTimeMillis();
+        SrsScheduler current = scheduler;
+        Rescheduler replayed = Rescheduler.run(snapshot, current, ForkJoinPool.commonPool(), listener);
+        return write(() -> applyRescheduleLocked(replayed, current, start));
+    }
+
+    private Rescheduler.Result applyRescheduleLocked(Rescheduler replayed, SrsScheduler current, long start) {
+        Map<EntityId, Course> changedCourses = new LinkedHashMap<>();
+        int rescheduled = 0;
+        int skipped = 0;
+        for (int i = 0; i < replayed.size(); i++) {
+            Resource frozen = replayed.frozenResource(i);
+            Resource live = resource(frozen.getEntityId());
+            if (live == null) continue; // Deleted meanwhile
+
+            byte outcome;
+            SrsState result;
+            reviewState.load(frozen);
+            if (reviewState.matches(live)) {
+                outcome = replayed.outcome(i);
+                result = replayed.state(i);
+            } else { // Reviewed or edited since the snapshot
+                outcome = Rescheduler.replay(current, reviewState, live, timeLogs.getForResource(live.getEntityId()));
+                result = reviewState;
+            }
+            if (outcome == Rescheduler.SKIPPED) skipped++;
+            if (outcome != Rescheduler.CHANGED) continue;
+
+            result.store(live);
+            dueIndex.update(live);
+            rescheduled++;
+            Course parentCourse = parentCourse(live.getEntityId());
+            if (parentCourse != null) {
+                changedCourses.put(parentCourse.getEntityId(), parentCourse);
+            }
+        }
+        if (rescheduled > 0) {
+            coursesChanged(changedCourses.values(), false);
+            checkpointRequested = true; // One checkpoint rather than a journal record per resource
+            persistence.markDirty();
+            announce(DataChangeEvent.Kind.SCHEDULES_CHANGED, null, null);
+        }
+        return new Rescheduler.Result(replayed.size(), rescheduled, skipped, System.currentTimeMillis() - start);
+    }
+
 
     // --- Review Session Specific Methods ---
 
     /**
      * Retrieves resources that are due for review on or before the given date.
      * @param dueDate The date to check against.
-     * @return A list of Resource objects that are due.
+     * @return A list of Resource objects that are due, soonest first (then by title).
      */
     public List<Resource> getDueResources(LocalDate dueDate) {
-        return getAllResources().stream()
-                .filter(r -> r.getNextReviewDate() != null &&
-                        (r.getNextReviewDate().isBefore(dueDate) || r.getNextReviewDate().isEqual(dueDate)))
-                .collect(Collectors.toList());
+        return read(() -> dueIndex.dueOn(dueDate).collect(Collectors.toList()));
+    }
+
+    /**
+     * @param limit The maximum number of resources to return.
+     * @return The resources due soonest, at most 'limit' of them. Only the earliest due
+     *         dates are examined.
+     */
+    public List<Resource> getDueResources(LocalDate dueDate, int limit) {
+        return read(() -> dueIndex.dueOn(dueDate).limit(limit).collect(Collectors.toList()));
     }
 
     /**
@@ -308,6 +1285,114 @@ public class DataManager {
      * @return The count of resources due today or earlier.
      */
     public int getDueResourceCount() {
-        return getDueResources(LocalDate.now()).size();
+        LocalDate today = LocalDate.now();
+        return read(() -> dueIndex.countDueOn(today));
+    }
+
+
+    // --- Journal Replay ---
+
+    /**
+     * Applies journal records to the freshly loaded snapshot. Every operation is
+     * idempotent because a snapshot may already contain records newer than its
+     * checkpoint sequence number. Replayed changes are marked dirty so that the next
+     * checkpoint writes them before the journal records are discarded.
+     */
+    private class JournalReplayer implements DataJournal.Replayer {
+        private Set<EntityId> knownTimeLogIds; // Built on first use
+
+        @Override
+        public void addCourse(Course course) {
+            if (course(course.getEntityId()) == null) {
+                courses = courses.plus(course);
+                trackCourse(course);
+            }
+            markCourseDirty(course.getEntityId());
+        }
+
+        @Override
+        public void updateCourse(String courseId, String name, String description) {
+            Course course = course(EntityId.fromString(courseId));
+            if (course != null) {
+                course.setName(name);
+                course.setDescription(description);
+                markCourseDirty(course.getEntityId());
+            }
+        }
+
+        @Override
+        public void deleteCourse(String courseId) {
+            Course course = course(EntityId.fromString(courseId));
+            if (course != null && removeCourseCascade(course) > 0) {
+                markTimeLogsDirty();
+                knownTimeLogIds = null;
+            }
+            markCourseDeleted(EntityId.fromString(courseId));
+        }
+
+        @Override
+        public void addResource(String courseId, Resource resource) {
+            Course course = course(EntityId.fromString(courseId));
+            if (course != null) {
+                if (!resourcesById.containsKey(resource.getEntityId())) { // Ignore resources already present
+                    course.addResource(resource);
+                    trackResource(course.getEntityId(), resource);
+                }
+                markCourseDirty(course.getEntityId());
+            }
+        }
+
+        @Override
+        public void updateResource(Resource resource) {
+            Course course = parentCourse(resource.getEntityId());
+            if (course != null && course.updateResource(resource)) {
+                trackResource(course.getEntityId(), resource);
+                markCourseDirty(course.getEntityId());
+            }
+        }
+
+        @Override
+        public void deleteResource(String resourceId) {
+            EntityId id = EntityId.fromString(resourceId);
+            Course course = parentCourse(id);
+            if (course != null && course.removeResource(id)) {
+                untrackResource(id);
+                markCourseDirty(course.getEntityId());
+            }
+            if (removeTimeLogsFor(Collections.singletonList(id)) > 0) {
+                markTimeLogsDirty();
+                knownTimeLogIds = null; // Rebuilt lazily from the remaining logs
+            }
+        }
+
+        @Override
+        public void addTimeLog(TimeLog log) {
+            if (knownTimeLogIds == null) {
+                knownTimeLogIds = timeLogs.ids();
+            }
+            if (knownTimeLogIds.add(log.getEntityId()) && !timeLogs.isArchived(log)) {
+                timeLogs.add(log);
+                markTimeLogsDirty();
+            }
+        }
+
+        @Override
+        public void updateSrs(String resourceId, LocalDate lastReviewedDate, LocalDate nextReviewDate,
+                              int reviewIntervalDays, double easeFactor, double stability, double difficulty) {
+            Resource resource = resource(EntityId.fromString(resourceId));
+            if (resource != null) {
+                resource.setLastReviewedDate(lastReviewedDate);
+                resource.setNextReviewDate(nextReviewDate);
+                resource.setReviewIntervalDays(reviewIntervalDays);
+                resource.setEaseFactor(easeFactor);
+                resource.setStability(stability);
+                resource.setDifficulty(difficulty);
+                dueIndex.update(resource);
+                Course course = parentCourse(resource.getEntityId());
+                if (course != null) {
+                    markCourseDirty(course.getEntityId());
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,192 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: DataSnapshot.java
+// Description: An immutable, versioned view of all data, published by DataManager after
+//              every mutation. Versions share structure: a change to one resource only
+//              copies that resource and O(log n) of its course's resource list, of the
+//              course list and of the index.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.Course;
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.model.PersistentList;
+import com.yourorg.app.model.Resource;
+import com.yourorg.app.model.TimeLog;
+
+import java.util.*;
+
+/**
+ * The Course and Resource objects in a snapshot are frozen copies of the live model
+ * objects, whose setters throw (see Course.freeze and Resource.freeze); TimeLogs are
+ * immutable and shared with the model.
+ */
+public final class DataSnapshot {
+
+    private final long version;
+    private final PersistentList<Course> courses;            // Frozen copies, in display order
+    private final PersistentMap<EntityId, Integer> positions; // Index in 'courses', by course ID
+    private final TimeLogStore.Snapshot timeLogs;
+
+    private DataSnapshot(long version, PersistentList<Course> courses, PersistentMap<EntityId, Integer> positions,
+                         TimeLogStore.Snapshot timeLogs) {
+        this.version = version;
+        this.courses = courses;
+        this.positions = positions;
+        this.timeLogs = timeLogs;
+    }
+
+    /**
+     * Freezes the complete live model. Used once after loading.
+     */
+    static DataSnapshot of(List<Course> liveCourses, TimeLogStore.Snapshot timeLogs, long version) {
+        PersistentList<Course> frozen = PersistentList.empty();
+        for (Course course : liveCourses) {
+            frozen = frozen.plus(freeze(course, null));
+        }
+        return new DataSnapshot(version, frozen, positionsFrom(frozen, 0, PersistentMap.empty()), timeLogs);
+    }
+
+    public long getVersion() { return version; }
+    public List<Course> getCourses() { return courses; } // Immutable
+
+    public Course getCourse(EntityId courseId) {
+        Integer position = positions.get(courseId);
+        return position != null ? courses.get(position) : null;
+    }
+
+    public TimeLogStore.Snapshot getTimeLogs() { return timeLogs; }
+
+    // --- Deriving New Versions ---
+
+    /**
+     * @return A new version in which the given live course (added or changed) is frozen
+     *         again. Resources whose state did not change are reused from this version.
+     */
+    DataSnapshot withCourse(Course liveCourse) {
+        Integer position = positions.get(liveCourse.getEntityId());
+        if (position != null) {
+            Course frozen = freeze(liveCourse, courses.get(position));
+            return new DataSnapshot(version + 1, courses.with(position, frozen), positions, timeLogs);
+        }
+        Course frozen = freeze(liveCourse, null);
+        return new DataSnapshot(version + 1, courses.plus(frozen),
+                positions.plus(frozen.getEntityId(), courses.size()), timeLogs);
+    }
+
+    /**
+     * @return A new version in which one resource of the given live course (added or
+     *         changed) is frozen again, in O(log n); the other resources are taken to be
+     *         unchanged. Falls back to withCourse if the resource is not where this
+     *         version has it (or, if added, not at the end).
+     */
+    DataSnapshot withResource(Course liveCourse, EntityId resourceId) {
+        Integer position = positions.get(liveCourse.getEntityId());
+        int index = liveCourse.indexOfResource(resourceId);
+        if (position == null || index < 0) {
+            return withCourse(liveCourse);
+        }
+        List<Resource> liveResources = liveCourse.getResources();
+        PersistentList<Resource> previousResources = PersistentList.of(courses.get(position).getResources());
+        Resource resource = copy(liveResources.get(index));
+        PersistentList<Resource> frozenResources;
+        if (index < previousResources.size() && previousResources.get(index).getEntityId().equals(resourceId)
+                && liveResources.size() == previousResources.size()) {
+            frozenResources = previousResources.with(index, resource);
+        } else if (index == previousResources.size() && liveResources.size() == index + 1) {
+            frozenResources = previousResources.plus(resource);
+        } else {
+            return withCourse(liveCourse);
+        }
+        Course frozen = new Course(liveCourse.getEntityId(), liveCourse.getName(), liveCourse.getDescription(),
+                frozenResources);
+        frozen.freeze();
+        return new DataSnapshot(version + 1, courses.with(position, frozen), positions, timeLogs);
+    }
+
+    /**
+     * O(#courses), as the courses after it move up; deleting courses is rare.
+     */
+    DataSnapshot withoutCourse(EntityId courseId) {
+        Integer position = positions.get(courseId);
+        if (position == null) {
+            return this;
+        }
+        PersistentList<Course> newCourses = courses.minus(position);
+        return new DataSnapshot(version + 1, newCourses,
+                positionsFrom(newCourses, position, positions.minus(courseId)), timeLogs);
+    }
+
+    DataSnapshot withTimeLogs(TimeLogStore.Snapshot newTimeLogs) {
+        return new DataSnapshot(version + 1, courses, positions, newTimeLogs);
+    }
+
+    // Records the positions of the courses from the given index on
+    private static PersistentMap<EntityId, Integer> positionsFrom(List<Course> courses, int from,
+                                                                 PersistentMap<EntityId, Integer> positions) {
+        for (int i = from; i < courses.size(); i++) {
+            positions = positions.plus(courses.get(i).getEntityId(), i);
+        }
+        return positions;
+    }
+
+    // --- Freezing ---
+
+    private static Course freeze(Course live, Course previous) {
+        List<Resource> liveResources = live.getResources();
+        List<Resource> previousResources = previous != null ? previous.getResources() : PersistentList.empty();
+        int kept = 0; // Leading positions that still hold the same resource
+        int common = Math.min(liveResources.size(), previousResources.size());
+        while (kept < common && previousResources.get(kept).getEntityId().equals(liveResources.get(kept).getEntityId())) {
+            kept++;
+        }
+
+        PersistentList<Resource> frozenResources;
+        if (kept == previousResources.size()) {
+            // Resources were only changed or appended, the usual case: derive from the previous version
+            frozenResources = PersistentList.of(previousResources);
+            for (int i = 0; i < kept; i++) {
+                Resource resource = liveResources.get(i);
+                if (!sameState(frozenResources.get(i), resource)) {
+                    frozenResources = frozenResources.with(i, copy(resource));
+                }
+            }
+            for (int i = kept; i < liveResources.size(); i++) {
+                frozenResources = frozenResources.plus(copy(liveResources.get(i)));
+            }
+        } else {
+            // Resources were removed: rebuild, O(n) like the removal itself
+            Map<EntityId, Resource> previousById = new HashMap<>();
+            for (Resource r : previousResources) {
+                previousById.put(r.getEntityId(), r);
+            }
+            frozenResources = PersistentList.empty();
+            for (Resource resource : liveResources) {
+                Resource old = previousById.get(resource.getEntityId());
+                frozenResources = frozenResources.plus(old != null && sameState(old, resource) ? old : copy(resource));
+            }
+        }
+        Course frozen = new Course(live.getEntityId(), live.getName(), live.getDescription(), frozenResources);
+        frozen.freeze();
+        return frozen;
+    }
+
+    private static Resource copy(Resource r) {
+        Resource frozen = new Resource(r); // Shares text not yet decoded from the data file
+        frozen.freeze();
+        return frozen;
+    }
+
+    // Cheap in the common case: unchanged fields still reference the same String/LocalDate objects
+    private static boolean sameState(Resource frozen, Resource live) {
+        return Objects.equals(frozen.getTitle(), live.getTitle())
+                && frozen.getType() == live.getType()
+                && frozen.hasSameText(live)
+                && Objects.equals(frozen.getLastReviewedDate(), live.getLastReviewedDate())
+                && Objects.equals(frozen.getNextReviewDate(), live.getNextReviewDate())
+                && frozen.getReviewIntervalDays() == live.getReviewIntervalDays()
+                && Double.compare(frozen.getEaseFactor(), live.getEaseFactor()) == 0
+                && Double.compare(frozen.getStability(), live.getStability()) == 0
+                && Double.compare(frozen.getDifficulty(), live.getDifficulty()) == 0;
+    }
+}
@@ -0,0 +1,107 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: DueDateIndex.java
+// Description: Resources ordered by next review date, so that due counts and
+//              "due soonest" lists do not have to look at every resource.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.model.Resource;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Not thread-safe; owned by DataManager. Resources are mutable, so the index remembers the
+ * day each resource was filed under and must be told (update) whenever a next review date
+ * may have changed. Resources without a next review date are never due and not indexed.
+ * The queries (countDueOn, dueOn) change nothing, so they may run concurrently under a
+ * shared lock; everything else needs exclusive access.
+ */
+public class DueDateIndex {
+
+    private static final Comparator<Resource> BY_TITLE = Comparator.comparing(Resource::getTitle,
+            Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(Resource::getEntityId);
+
+    private final NavigableMap<Long, Map<EntityId, Resource>> resourcesByDay = new TreeMap<>(); // Keyed by epoch day
+    private final Map<EntityId, Long> dayByResourceId = new HashMap<>();
+
+    // The due count for one day (see trackDueOn), kept up to date incrementally so counts for that day are O(1)
+    private long countedDay = Long.MIN_VALUE;
+    private int countedDue;
+
+    public void clear() {
+        resourcesByDay.clear();
+        dayByResourceId.clear();
+        countedDay = Long.MIN_VALUE;
+    }
+
+    /**
+     * Files the resource under its current next review date, moving it if it was indexed
+     * under a different date.
+     */
+    public void update(Resource resource) {
+        remove(resource.getEntityId());
+        if (resource.getNextReviewDate() == null) return;
+        long day = resource.getNextReviewDate().toEpochDay();
+        resourcesByDay.computeIfAbsent(day, d -> new LinkedHashMap<>()).put(resource.getEntityId(), resource);
+        dayByResourceId.put(resource.getEntityId(), day);
+        if (day <= countedDay) {
+            countedDue++;
+        }
+    }
+
+    public void remove(EntityId resourceId) {
+        Long day = dayByResourceId.remove(resourceId);
+        if (day == null) return;
+        Map<EntityId, Resource> bucket = resourcesByDay.get(day);
+        bucket.remove(resourceId);
+        if (bucket.isEmpty()) {
+            resourcesByDay.remove(day);
+        }
+        if (day <= countedDay) {
+            countedDue--;
+        }
+    }
+
+    /**
+     * Keeps the due count for the given date from now on, so that countDueOn is O(1) for
+     * it. Changes the index, so it needs exclusive access; cheap when the date is already tracked.
+     */
+    public void trackDueOn(LocalDate date) {
+        long day = date.toEpochDay();
+        if (day != countedDay) {
+            countedDue = count(day);
+            countedDay = day;
+        }
+    }
+
+    /**
+     * @return The number of resources due on or before the given date. O(1) for the
+     *         tracked date, otherwise proportional to the number of distinct due dates
+     *         up to it.
+     */
+    public int countDueOn(LocalDate date) {
+        long day = date.toEpochDay();
+        return day == countedDay ? countedDue : count(day);
+    }
+
+    private int count(long day) {
+        int count = 0;
+        for (Map<EntityId, Resource> bucket : resourcesByDay.headMap(day, true).values()) {
+            count += bucket.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return The resources due on or before the given date, soonest first and by title
+     *         within a day. Lazy: only the days that are actually consumed get sorted.
+     */
+    public Stream<Resource> dueOn(LocalDate date) {
+        return resourcesByDay.headMap(date.toEpochDay(), true).values().stream()
+                .flatMap(bucket -> bucket.values().stream().sorted(BY_TITLE));
+    }
+}
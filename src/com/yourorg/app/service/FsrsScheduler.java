@@ -0,0 +1,132 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: FsrsScheduler.java
+// Description: A scheduler after FSRS (Free Spaced Repetition Scheduler, version 4.5):
+//              models each resource's memory stability and difficulty and schedules the
+//              next review for when recall is predicted to drop to the requested retention.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import java.util.Arrays;
+
+/**
+ * Immutable. Keeps its state in the resource's stability and difficulty; ease factors are
+ * left alone, so switching back to SM-2 continues from where SM-2 left off. A resource
+ * without a stability yet (never reviewed, or only reviewed under SM-2) starts over as if
+ * this were its first review.
+ * Answers are mapped onto the four FSRS grades: 0-2 Again, 3 Hard, 4 Good, 5 Easy.
+ */
+public final class FsrsScheduler implements SrsScheduler {
+
+    // The published FSRS-4.5 default weights, w0 to w16
+    private static final double[] DEFAULT_WEIGHTS = {
+            0.4872, 1.4003, 3.7145, 13.8206, 5.1618, 1.2298, 0.8975, 0.031, 1.6474,
+            0.1367, 1.0461, 2.1072, 0.0793, 0.3246, 1.587, 0.2272, 2.8755
+    };
+    public static final double DEFAULT_REQUESTED_RETENTION = 0.9;
+    public static final int DEFAULT_MAXIMUM_INTERVAL_DAYS = 36500;
+
+    private static final double DECAY = -0.5;
+    private static final double FACTOR = 19.0 / 81.0; // Makes retrievability 0.9 when elapsed days == stability
+    private static final int AGAIN = 1, HARD = 2, GOOD = 3, EASY = 4;
+
+    private final double[] w;
+    private final double requestedRetention;
+    private final int maximumIntervalDays;
+    private final double intervalModifier; // Interval per day of stability for the requested retention
+
+    public FsrsScheduler() {
+        this(DEFAULT_WEIGHTS, DEFAULT_REQUESTED_RETENTION, DEFAULT_MAXIMUM_INTERVAL_DAYS);
+    }
+
+    /**
+     * @param weights The 17 model weights, e.g. as optimized from one's own review history.
+     * @param requestedRetention The recall probability to schedule reviews at, e.g. 0.9.
+     */
+    public FsrsScheduler(double[] weights, double requestedRetention, int maximumIntervalDays) {
+        if (weights.length != DEFAULT_WEIGHTS.length) {
+            throw new IllegalArgumentException("FSRS needs " + DEFAULT_WEIGHTS.length + " weights, got " + weights.length);
+        }
+        if (!(requestedRetention > 0 && requestedRetention < 1) || maximumIntervalDays < 1) {
+            throw new IllegalArgumentException("Requested retention must be between 0 and 1, maximum interval positive");
+        }
+        this.w = weights.clone();
+        this.requestedRetention = requestedRetention;
+        this.maximumIntervalDays = maximumIntervalDays;
+        this.intervalModifier = (Math.pow(requestedRetention, 1 / DECAY) - 1) / FACTOR;
+    }
+
+    @Override
+    public void review(SrsState state, int quality, long reviewDay) {
+        int grade = quality <= 2 ? AGAIN : quality == 3 ? HARD : quality == 4 ? GOOD : EASY;
+
+        double stability;
+        double difficulty;
+        if (state.getStability() <= 0 || state.getLastReviewDay() == SrsState.NO_DAY) {
+            stability = w[grade - 1];
+            difficulty = initialDifficulty(grade);
+        } else {
+            double elapsedDays = Math.max(0, reviewDay - state.getLastReviewDay());
+            double retrievability = Math.pow(1 + FACTOR * elapsedDays / state.getStability(), DECAY);
+            double previousDifficulty = state.getDifficulty() > 0 ? state.getDifficulty() : initialDifficulty(GOOD);
+            difficulty = nextDifficulty(previousDifficulty, grade);
+            stability = grade == AGAIN
+                    ? stabilityAfterLapse(previousDifficulty, state.getStability(), retrievability)
+                    : stabilityAfterRecall(previousDifficulty, state.getStability(), retrievability, grade);
+        }
+
+        int interval = (int) Math.round(stability * intervalModifier);
+        if (interval < 1) interval = 1;
+        if (interval > maximumIntervalDays) interval = maximumIntervalDays;
+
+        state.setStability(stability);
+        state.setDifficulty(difficulty);
+        state.setIntervalDays(interval);
+        state.setLastReviewDay(reviewDay);
+        state.setNextReviewDay(reviewDay + interval);
+    }
+
+    private double initialDifficulty(int grade) {
+        return clampDifficulty(w[4] - (grade - 3) * w[5]);
+    }
+
+    private double nextDifficulty(double difficulty, int grade) {
+        double next = difficulty - w[6] * (grade - 3);
+        return clampDifficulty(w[7] * initialDifficulty(GOOD) + (1 - w[7]) * next); // Mean reversion
+    }
+
+    private double stabilityAfterRecall(double difficulty, double stability, double retrievability, int grade) {
+        double hardPenalty = grade == HARD ? w[15] : 1;
+        double easyBonus = grade == EASY ? w[16] : 1;
+        return stability * (1 + Math.exp(w[8]) * (11 - difficulty) * Math.pow(stability, -w[9])
+                * (Math.exp((1 - retrievability) * w[10]) - 1) * hardPenalty * easyBonus);
+    }
+
+    private double stabilityAfterLapse(double difficulty, double stability, double retrievability) {
+        double next = w[11] * Math.pow(difficulty, -w[12]) * (Math.pow(stability + 1, w[13]) - 1)
+                * Math.exp((1 - retrievability) * w[14]);
+        return Math.min(next, stability); // Forgetting never makes the memory more stable
+    }
+
+    private static double clampDifficulty(double difficulty) {
+        return Math.min(Math.max(difficulty, 1), 10);
+    }
+
+    @Override
+    public String getName() {
+        return "FSRS";
+    }
+
+    public double[] getWeights() { return w.clone(); }
+    public double getRequestedRetention() { return requestedRetention; }
+    public int getMaximumIntervalDays() { return maximumIntervalDays; }
+
+    @Override
+    public String toString() {
+        return "FsrsScheduler{" +
+                "weights=" + Arrays.toString(w) +
+                ", requestedRetention=" + requestedRetention +
+                ", maximumIntervalDays=" + maximumIntervalDays +
+                '}';
+    }
+}
@@ -0,0 +1,167 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: MappedFile.java
+// Description: A data file mapped into memory, from which LazyText values decode their
+//              text on demand. Can be re-mapped when the file is rewritten, or released
+//              so the file may be deleted.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.LazyText;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * The mapping is owned by a shared arena, so it is unmapped as soon as it is closed
+ * rather than whenever the garbage collector gets to it; some platforms do not allow a
+ * mapped file to be replaced.
+ *
+ * LazyText values keep the offset they were created with. Once the texts in the file
+ * are known (see track), the file can be replaced by a rewritten version (see remap):
+ * texts the new version still contains are then read from their new offset, and only
+ * the others are copied to the heap. Released files copy all their bytes to the heap,
+ * so LazyText values taken from them keep working.
+ */
+public final class MappedFile implements LazyText.Source {
+
+    private static final long[] NO_OFFSETS = {};
+
+    private Arena arena;           // Guarded by this, like all fields below
+    private MemorySegment segment; // A heap copy once released
+
+    // The texts handed out, by the offset they were created with (sorted), and where they are now
+    private long[] textOffsets = NO_OFFSETS;
+    private int[] textLengths = {};
+    private long[] currentOffsets = NO_OFFSETS;
+    private byte[][] detachedTexts = {}; // Non-null for texts the current version no longer contains
+
+    private MappedFile(Arena arena, MemorySegment segment) {
+        this.arena = arena;
+        this.segment = segment;
+    }
+
+    public static MappedFile open(File file) throws IOException {
+        Arena arena = Arena.ofShared();
+        return new MappedFile(arena, map(file, arena));
+    }
+
+    private static MemorySegment map(File file, Arena arena) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return A buffer over the whole file, for parsing it. Only valid until the file is
+     *         re-mapped, released or closed.
+     */
+    public synchronized ByteBuffer buffer() {
+        return segment.asByteBuffer();
+    }
+
+    /**
+     * Records the texts taken from this file, so that they can be relocated by remap.
+     * Called once, after parsing; texts from other sources are ignored.
+     */
+    public synchronized void track(Collection<LazyText> texts) {
+        LazyText[] own = texts.stream().filter(text -> text.getSource() == this)
+                .sorted(Comparator.comparingLong(LazyText::getOffset)).toArray(LazyText[]::new);
+        textOffsets = Arrays.stream(own).mapToLong(LazyText::getOffset).toArray();
+        textLengths = Arrays.stream(own).mapToInt(LazyText::length).toArray();
+        currentOffsets = textOffsets.clone();
+        detachedTexts = new byte[textOffsets.length][];
+    }
+
+    @Override
+    public synchronized String decode(long offset, int length) {
+        int index = Arrays.binarySearch(textOffsets, offset);
+        if (index >= 0) {
+            if (detachedTexts[index] != null) {
+                return new String(detachedTexts[index], StandardCharsets.UTF_8);
+            }
+            offset = currentOffsets[index];
+        }
+        return new String(bytesAt(offset, length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] bytesAt(long offset, int length) {
+        return segment.asSlice(offset, length).toArray(ValueLayout.JAVA_BYTE);
+    }
+
+    /**
+     * Unmaps this file, lets replacer put a rewritten version in its place and maps that.
+     * Reading texts waits meanwhile. If the replacer fails, the old version is mapped again.
+     * @param relocated The new offset of each tracked text the new version still contains,
+     *                  by the offset the text was created with. The other tracked texts
+     *                  are copied to the heap first.
+     */
+    public synchronized void remap(File file, Map<Long, Long> relocated, FileReplacer replacer) throws IOException {
+        long[] newOffsets = currentOffsets.clone();
+        byte[][] newDetached = detachedTexts.clone();
+        for (int i = 0; i < textOffsets.length; i++) {
+            Long newOffset = relocated.get(textOffsets[i]);
+            if (newOffset != null) {
+                newOffsets[i] = newOffset;
+                newDetached[i] = null;
+            } else if (newDetached[i] == null) {
+                newDetached[i] = bytesAt(currentOffsets[i], textLengths[i]);
+            }
+        }
+        boolean mapped = segment.isNative();
+        if (mapped) {
+            arena.close();
+        }
+        try {
+            replacer.replace();
+        } catch (IOException | RuntimeException e) {
+            if (mapped) {
+                arena = Arena.ofShared();
+                segment = map(file, arena);
+            }
+            throw e;
+        }
+        arena = Arena.ofShared();
+        segment = map(file, arena);
+        currentOffsets = newOffsets;
+        detachedTexts = newDetached;
+    }
+
+    public interface FileReplacer {
+        void replace() throws IOException;
+    }
+
+    /**
+     * Copies the contents to the heap and unmaps the file.
+     */
+    public synchronized void release() {
+        if (segment.isNative()) {
+            segment = MemorySegment.ofArray(segment.toArray(ValueLayout.JAVA_BYTE));
+            arena.close();
+        }
+    }
+
+    /**
+     * Unmaps the file without keeping its contents; texts taken from it can no longer be read.
+     */
+    public synchronized void close() {
+        if (segment.isNative()) {
+            arena.close();
+            segment = MemorySegment.ofArray(new byte[0]);
+        }
+    }
+}
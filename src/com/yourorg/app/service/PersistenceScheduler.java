@@ -0,0 +1,145 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: PersistenceScheduler.java
+// Description: Single-writer save scheduler. Mutations only mark the store dirty;
+//              saves are coalesced within a configurable window and run on one
+//              dedicated thread, so at most one save is ever in flight.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class PersistenceScheduler {
+
+    private static final long RETRY_DELAY_MILLIS = 5000; // Delay before retrying a failed save
+
+    /**
+     * The actual save, always invoked on the scheduler's writer thread.
+     */
+    public interface SaveTask {
+        void save() throws IOException;
+    }
+
+    private final SaveTask saveTask;
+    private final long coalesceMillis;
+    private final ScheduledExecutorService writer;
+
+    // Guarded by 'this'
+    private long dirtyVersion;   // Incremented by every markDirty()
+    private long durableVersion; // Highest version covered by a completed save
+    private boolean saveScheduled;
+    private boolean shutDown;
+
+    public PersistenceScheduler(SaveTask saveTask, long coalesceMillis) {
+        this.saveTask = saveTask;
+        this.coalesceMillis = coalesceMillis;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "DataManager-persistence");
+            thread.setDaemon(true); // Never keep the JVM alive; shutdown goes through flush()
+            return thread;
+        });
+    }
+
+    /**
+     * Records that the store has changed. The first call after a save schedules a new
+     * save after the coalescing window; further calls within the window are folded into it.
+     */
+    public synchronized void markDirty() {
+        dirtyVersion++;
+        scheduleSave(coalesceMillis);
+    }
+
+    /**
+     * Starts a save immediately (if anything is pending) and waits for it.
+     * @return true if every change made before this call is durable.
+     */
+    public boolean flush(long timeoutMillis) {
+        synchronized (this) {
+            if (durableVersion >= dirtyVersion) {
+                return true;
+            }
+            if (!shutDown) {
+                writer.execute(this::runSave);
+            }
+        }
+        return awaitDurable(timeoutMillis);
+    }
+
+    /**
+     * Waits until every change marked before this call has been saved.
+     * @return true if the changes are durable, false on timeout or interruption.
+     */
+    public synchronized boolean awaitDurable(long timeoutMillis) {
+        long target = dirtyVersion;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (durableVersion < target) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized boolean isDirty() {
+        return durableVersion < dirtyVersion;
+    }
+
+    /**
+     * Flushes pending changes and stops the writer thread. If the flush fails the
+     * writer keeps running, so the caller may keep working and try again.
+     * @return true if all changes were saved before the timeout.
+     */
+    public boolean shutdown(long timeoutMillis) {
+        if (!flush(timeoutMillis)) {
+            return false;
+        }
+        synchronized (this) {
+            shutDown = true;
+        }
+        writer.shutdown();
+        return true;
+    }
+
+    private void scheduleSave(long delayMillis) {
+        // Caller holds the lock
+        if (!saveScheduled && !shutDown) {
+            saveScheduled = true;
+            writer.schedule(this::runSave, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void runSave() {
+        long version;
+        synchronized (this) {
+            saveScheduled = false; // Changes arriving from now on need another save
+            version = dirtyVersion;
+            if (version <= durableVersion) {
+                return; // Already covered by an earlier save (e.g. a flush)
+            }
+        }
+        try {
+            saveTask.save();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error during background save: " + e.getMessage());
+            e.printStackTrace();
+            synchronized (this) {
+                scheduleSave(RETRY_DELAY_MILLIS);
+            }
+            return;
+        }
+        synchronized (this) {
+            durableVersion = Math.max(durableVersion, version);
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: PersistentMap.java
+// Description: An immutable hash map of which changed versions can be derived cheaply:
+//              adding or removing a key copies one path of a 32-way hash trie, and
+//              shares everything else with the version it was derived from.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A hash array mapped trie: each level uses 5 more bits of the key's hash to pick a slot,
+ * and nodes only store the slots in use. get, plus and minus are O(log32 n). Null keys
+ * and values are not allowed.
+ */
+final class PersistentMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(new Node(0, new Object[0]), 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(K key) {
+        int hash = key.hashCode();
+        Object node = root;
+        for (int level = 0; ; level += BITS) {
+            if (node instanceof Collisions) {
+                Entry entry = ((Collisions) node).find(key);
+                return entry != null ? (V) entry.value : null;
+            }
+            Node branch = (Node) node;
+            int bit = bit(hash, level);
+            if ((branch.bitmap & bit) == 0) return null;
+            Object slot = branch.slots[branch.index(bit)];
+            if (slot instanceof Entry) {
+                Entry entry = (Entry) slot;
+                return entry.key.equals(key) ? (V) entry.value : null;
+            }
+            node = slot;
+        }
+    }
+
+    /**
+     * @return A version in which the key maps to the value.
+     */
+    PersistentMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(value);
+        boolean added = get(key) == null;
+        return new PersistentMap<>((Node) put(root, new Entry(key, key.hashCode(), value), 0), added ? size + 1 : size);
+    }
+
+    /**
+     * @return A version without the key; this version if it is not in the map.
+     */
+    PersistentMap<K, V> minus(K key) {
+        if (get(key) == null) {
+            return this;
+        }
+        Node newRoot = (Node) remove(root, key, key.hashCode(), 0);
+        return new PersistentMap<>(newRoot != null ? newRoot : new Node(0, new Object[0]), size - 1);
+    }
+
+    private static int bit(int hash, int level) {
+        return 1 << ((hash >>> level) & MASK);
+    }
+
+    private static Object put(Object node, Entry entry, int level) {
+        if (node instanceof Collisions) {
+            return ((Collisions) node).with(entry);
+        }
+        Node branch = (Node) node;
+        int bit = bit(entry.hash, level);
+        int index = branch.index(bit);
+        if ((branch.bitmap & bit) == 0) {
+            Object[] slots = new Object[branch.slots.length + 1];
+            System.arraycopy(branch.slots, 0, slots, 0, index);
+            slots[index] = entry;
+            System.arraycopy(branch.slots, index, slots, index + 1, branch.slots.length - index);
+            return new Node(branch.bitmap | bit, slots);
+        }
+        Object slot = branch.slots[index];
+        Object replacement;
+        if (slot instanceof Entry) {
+            Entry existing = (Entry) slot;
+            replacement = existing.key.equals(entry.key) ? entry : merge(existing, entry, level + BITS);
+        } else {
+            replacement = put(slot, entry, level + BITS);
+        }
+        Object[] slots = branch.slots.clone();
+        slots[index] = replacement;
+        return new Node(branch.bitmap, slots);
+    }
+
+    // A node holding two entries whose hashes agree up to the level
+    private static Object merge(Entry a, Entry b, int level) {
+        if (level >= Integer.SIZE) { // All bits used: the full hashes are equal
+            return new Collisions(new Entry[] {a, b});
+        }
+        int bitA = bit(a.hash, level);
+        int bitB = bit(b.hash, level);
+        if (bitA == bitB) {
+            return new Node(bitA, new Object[] {merge(a, b, level + BITS)});
+        }
+        return new Node(bitA | bitB, Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[] {a, b} : new Object[] {b, a});
+    }
+
+    // The node without the key (which must be present), or null if that leaves it empty
+    private static Object remove(Object node, Object key, int hash, int level) {
+        if (node instanceof Collisions) {
+            return ((Collisions) node).without(key);
+        }
+        Node branch = (Node) node;
+        int bit = bit(hash, level);
+        int index = branch.index(bit);
+        Object slot = branch.slots[index];
+        Object replacement = slot instanceof Entry ? null : remove(slot, key, hash, level + BITS);
+        if (replacement != null) {
+            Object[] slots = branch.slots.clone();
+            slots[index] = replacement;
+            return new Node(branch.bitmap, slots);
+        }
+        if (branch.slots.length == 1) {
+            return null;
+        }
+        Object[] slots = new Object[branch.slots.length - 1];
+        System.arraycopy(branch.slots, 0, slots, 0, index);
+        System.arraycopy(branch.slots, index + 1, slots, index, slots.length - index);
+        return new Node(branch.bitmap & ~bit, slots);
+    }
+
+    private static final class Entry {
+        final Object key;
+        final int hash;
+        final Object value;
+
+        Entry(Object key, int hash, Object value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    // Slots hold an Entry or a child (Node or Collisions), in the order of their bits
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    // Entries whose full hashes are equal
+    private static final class Collisions {
+        final Entry[] entries;
+
+        Collisions(Entry[] entries) {
+            this.entries = entries;
+        }
+
+        Entry find(Object key) {
+            for (Entry entry : entries) {
+                if (entry.key.equals(key)) return entry;
+            }
+            return null;
+        }
+
+        Collisions with(Entry entry) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].key.equals(entry.key)) {
+                    Entry[] copy = entries.clone();
+                    copy[i] = entry;
+                    return new Collisions(copy);
+                }
+            }
+            Entry[] copy = Arrays.copyOf(entries, entries.length + 1);
+            copy[entries.length] = entry;
+            return new Collisions(copy);
+        }
+
+        Collisions without(Object key) {
+            if (entries.length == 1) return null;
+            Entry[] kept = new Entry[entries.length - 1];
+            int k = 0;
+            for (Entry entry : entries) {
+                if (!entry.key.equals(key)) kept[k++] = entry;
+            }
+            return new Collisions(kept);
+        }
+    }
+}
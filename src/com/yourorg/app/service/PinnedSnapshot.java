@@ -0,0 +1,153 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: PinnedSnapshot.java
+// Description: One version of all data, pinned for a long-running job such as
+//              statistics or an export. Answers queries without taking any lock and
+//              always from the same version, however much the data changes meanwhile.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.Course;
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.model.Resource;
+import com.yourorg.app.model.TimeLog;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Obtained from DataManager.pinSnapshot() and used in a try-with-resources block.
+ * Versions share everything that did not change between them, so pinning costs nothing
+ * but keeping the version alive; once no pin (or other reference) is left, the garbage
+ * collector reclaims it, including any time log archive mapping only it still used.
+ * A pin that is never closed is released when it becomes unreachable, with a warning.
+ * Not thread-safe: one job, one pin.
+ */
+public final class PinnedSnapshot implements AutoCloseable {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * The registration of a pin with its DataManager. Kept apart from the PinnedSnapshot
+     * so that the cleaner can still run it once the PinnedSnapshot is unreachable.
+     */
+    private static final class Pin implements Runnable {
+        private final Map<Object, Long> registry;
+        private final long version;
+        private volatile boolean closed;
+
+        Pin(Map<Object, Long> registry, long version) {
+            this.registry = registry;
+            this.version = version;
+        }
+
+        @Override
+        public void run() {
+            if (registry.remove(this) != null && !closed) {
+                System.err.println("Warning: data snapshot version " + version + " was never closed.");
+            }
+        }
+    }
+
+    private final DataSnapshot snapshot;
+    private final Pin pin;
+    private final Cleaner.Cleanable cleanable;
+    private Map<EntityId, Resource> resourcesById;     // Built on first use
+    private Map<EntityId, Course> coursesByResourceId; // Built on first use
+
+    /**
+     * @param registry The DataManager's pinned versions, by pin.
+     */
+    PinnedSnapshot(DataSnapshot snapshot, Map<Object, Long> registry) {
+        this.snapshot = snapshot;
+        this.pin = new Pin(registry, snapshot.getVersion());
+        registry.put(pin, snapshot.getVersion());
+        this.cleanable = CLEANER.register(this, pin);
+    }
+
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    public List<Course> getCourses() {
+        checkOpen();
+        return snapshot.getCourses();
+    }
+
+    public Course getCourse(EntityId courseId) {
+        checkOpen();
+        return snapshot.getCourse(courseId);
+    }
+
+    public List<Resource> getResourcesForCourse(EntityId courseId) {
+        Course course = getCourse(courseId);
+        return course != null ? course.getResources() : Collections.emptyList();
+    }
+
+    public List<Resource> getAllResources() {
+        checkOpen();
+        List<Resource> resources = new ArrayList<>();
+        for (Course course : snapshot.getCourses()) {
+            resources.addAll(course.getResources());
+        }
+        return resources;
+    }
+
+    public Resource getResource(EntityId resourceId) {
+        checkOpen();
+        indexResources();
+        return resourcesById.get(resourceId);
+    }
+
+    public Course getCourseForResource(EntityId resourceId) {
+        checkOpen();
+        indexResources();
+        return coursesByResourceId.get(resourceId);
+    }
+
+    /**
+     * @return All time logs of this version, archived ones first. Each get() creates a TimeLog.
+     */
+    public List<TimeLog> getAllTimeLogs() {
+        checkOpen();
+        return snapshot.getTimeLogs();
+    }
+
+    public List<TimeLog> getTimeLogsForResource(EntityId resourceId) {
+        checkOpen();
+        return snapshot.getTimeLogs().getForResource(resourceId);
+    }
+
+    /**
+     * Unpins the version. Objects already taken from it stay valid.
+     */
+    @Override
+    public void close() {
+        pin.closed = true;
+        cleanable.clean(); // Runs the pin's removal at most once, here or by the cleaner
+    }
+
+    private void checkOpen() {
+        if (pin.closed) {
+            throw new IllegalStateException("Snapshot version " + snapshot.getVersion() + " has been closed");
+        }
+    }
+
+    private void indexResources() {
+        if (resourcesById != null) return;
+        Map<EntityId, Resource> byId = new HashMap<>();
+        Map<EntityId, Course> parents = new HashMap<>();
+        for (Course course : snapshot.getCourses()) {
+            for (Resource resource : course.getResources()) {
+                byId.put(resource.getEntityId(), resource);
+                parents.put(resource.getEntityId(), course);
+            }
+        }
+        resourcesById = byId;
+        coursesByResourceId = parents;
+    }
+}
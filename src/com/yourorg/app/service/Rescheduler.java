@@ -0,0 +1,228 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: Rescheduler.java
+// Description: Recomputes the SRS state of every resource by replaying its review
+//              history through a scheduler, on a fork-join pool. Used when the
+//              scheduler or its parameters change; see DataManager.rescheduleAll().
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.Course;
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.model.Resource;
+import com.yourorg.app.model.TimeLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Works on one DataSnapshot, so the computation needs no lock; DataManager then applies
+ * the results under its write lock. A resource can only be replayed if the answer of
+ * every one of its reviews is known: resources reviewed before answers were recorded
+ * keep their schedule and are counted as skipped.
+ */
+public final class Rescheduler {
+
+    /**
+     * Called from the pool's threads as resources are done, at most about a hundred times.
+     */
+    public interface ProgressListener {
+        void progress(int done, int total);
+    }
+
+    /**
+     * The outcome of a bulk reschedule.
+     */
+    public static class Result {
+        public final int total;        // Resources looked at
+        public final int rescheduled;  // Whose schedule changed
+        public final int skipped;      // Whose history is incomplete, left as they were
+        public final long elapsedMillis;
+
+        Result(int total, int rescheduled, int skipped, long elapsedMillis) {
+            this.total = total;
+            this.rescheduled = rescheduled;
+            this.skipped = skipped;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+
+    static final byte UNCHANGED = 0;
+    static final byte CHANGED = 1;
+    static final byte SKIPPED = 2;
+
+    private static final int LEAF_SIZE = 256; // Resources per fork-join leaf
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final SrsScheduler scheduler;
+    private final Resource[] resources; // The snapshot's frozen copies
+    private final long[][] histories;   // Per resource, see pack(); null if it has no reviews
+    private final ProgressListener listener;
+    private final AtomicInteger done = new AtomicInteger();
+    private final int progressStep;
+
+    // The results, by position in 'resources'
+    private final byte[] outcomes;
+    private final SrsState[] states;
+
+    private Rescheduler(SrsScheduler scheduler, Resource[] resources, long[][] histories, ProgressListener listener) {
+        this.scheduler = scheduler;
+        this.resources = resources;
+        this.histories = histories;
+        this.listener = listener;
+        this.outcomes = new byte[resources.length];
+        this.states = new SrsState[resources.length];
+        this.progressStep = Math.max(1, resources.length / 100);
+    }
+
+    /**
+     * Replays the history of every resource in the snapshot on the given pool.
+     * @param listener May be null.
+     */
+    static Rescheduler run(DataSnapshot snapshot, SrsScheduler scheduler, ForkJoinPool pool,
+                           ProgressListener listener) {
+        List<Resource> all = new ArrayList<>();
+        for (Course course : snapshot.getCourses()) {
+            all.addAll(course.getResources());
+        }
+        Resource[] resources = all.toArray(new Resource[0]);
+        Rescheduler rescheduler = new Rescheduler(scheduler, resources,
+                collectHistories(snapshot.getTimeLogs(), resources), listener);
+        pool.invoke(rescheduler.new Replay(0, resources.length));
+        return rescheduler;
+    }
+
+    int size() {
+        return resources.length;
+    }
+
+    Resource frozenResource(int index) {
+        return resources[index];
+    }
+
+    byte outcome(int index) {
+        return outcomes[index];
+    }
+
+    /**
+     * @return The new state of a resource whose outcome is CHANGED.
+     */
+    SrsState state(int index) {
+        return states[index];
+    }
+
+    /**
+     * Replays one resource's history, as logged, into 'state'.
+     * @return CHANGED if the result differs from the resource's current state.
+     */
+    static byte replay(SrsScheduler scheduler, SrsState state, Resource resource, List<TimeLog> logs) {
+        long[] history = new long[logs.size()];
+        for (int k = 0; k < history.length; k++) {
+            TimeLog log = logs.get(k);
+            history[k] = pack(log.getDate() != null ? (int) log.getDate().toEpochDay() : NO_DATE, k, log.getQuality());
+        }
+        Arrays.sort(history);
+        return replay(scheduler, state, resource, history.length > 0 ? history : null);
+    }
+
+    private static byte replay(SrsScheduler scheduler, SrsState state, Resource resource, long[] history) {
+        if (history == null) { // Never reviewed: nothing to replay, unless the reviews were not logged
+            return resource.getLastReviewedDate() == null ? UNCHANGED : SKIPPED;
+        }
+        state.reset(SrsState.NO_DAY);
+        for (long entry : history) {
+            int day = dayOf(entry);
+            int quality = qualityOf(entry);
+            if (day == NO_DATE || quality < SrsScheduler.MIN_QUALITY || quality > SrsScheduler.MAX_QUALITY) {
+                return SKIPPED;
+            }
+            scheduler.review(state, quality, day);
+        }
+        return state.matches(resource) ? UNCHANGED : CHANGED;
+    }
+
+    // Reads the whole history once, grouped by resource; only reviews of these resources are kept
+    private static long[][] collectHistories(TimeLogStore.Snapshot timeLogs, Resource[] resources) {
+        Map<EntityId, Integer> positions = new HashMap<>(resources.length * 2);
+        for (int i = 0; i < resources.length; i++) {
+            positions.put(resources[i].getEntityId(), i);
+        }
+        long[][] histories = new long[resources.length][];
+        int[] sizes = new int[resources.length];
+        timeLogs.forEachReview((resourceId, day, quality) -> {
+            Integer position = positions.get(resourceId);
+            if (position == null) return; // Its resource has been deleted
+            int i = position;
+            if (histories[i] == null) {
+                histories[i] = new long[4];
+            } else if (sizes[i] == histories[i].length) {
+                histories[i] = Arrays.copyOf(histories[i], sizes[i] * 2);
+            }
+            histories[i][sizes[i]] = pack(day, sizes[i], quality);
+            sizes[i]++;
+        });
+        for (int i = 0; i < histories.length; i++) {
+            if (histories[i] != null) {
+                histories[i] = Arrays.copyOf(histories[i], sizes[i]);
+                Arrays.sort(histories[i]); // By day; reviews of the same day stay in logged order
+            }
+        }
+        return histories;
+    }
+
+    // [int day][24-bit position in the resource's history][8-bit quality], so that sorting orders by day
+    private static long pack(int day, int position, int quality) {
+        return ((long) day << 32) | ((long) (position & 0xFFFFFF) << 8) | (quality & 0xFF);
+    }
+
+    private static int dayOf(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    private static int qualityOf(long entry) {
+        return (byte) entry; // Sign-extends, so TimeLog.NO_QUALITY comes back as -1
+    }
+
+    private void reportProgress(int count) {
+        if (listener == null) return;
+        int after = done.addAndGet(count);
+        int before = after - count;
+        if (after / progressStep != before / progressStep || after == resources.length) {
+            listener.progress(after, resources.length);
+        }
+    }
+
+    private class Replay extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        Replay(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Replay(from, middle), new Replay(middle, to));
+                return;
+            }
+            SrsState state = new SrsState(); // One per leaf; only the changed resources keep theirs
+            for (int i = from; i < to; i++) {
+                outcomes[i] = replay(scheduler, state, resources[i], histories[i]);
+                if (outcomes[i] == CHANGED) {
+                    states[i] = state;
+                    state = new SrsState();
+                }
+            }
+            reportProgress(to - from);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: SchedulerSettings.java
+// Description: Reads and writes the selected SRS scheduler and its parameters as a
+//              small properties file next to the data, so the choice survives restarts.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+public final class SchedulerSettings {
+
+    private static final String ALGORITHM = "algorithm";
+    private static final String SM2 = "SM-2";
+    private static final String FSRS = "FSRS";
+
+    private SchedulerSettings() {
+    }
+
+    /**
+     * @return The scheduler stored in the file; the default SM-2 scheduler if there is no
+     *         file or it cannot be read. A missing or invalid parameter falls back to its
+     *         default alone, so the stored algorithm and its other parameters are kept.
+     */
+    public static SrsScheduler read(File file) {
+        if (!file.isFile()) {
+            return new Sm2Scheduler();
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException e) { // Malformed escapes included
+            System.err.println("Error reading scheduler settings " + file + ", using SM-2 defaults: " + e.getMessage());
+            return new Sm2Scheduler();
+        }
+        if (FSRS.equals(properties.getProperty(ALGORITHM))) {
+            return new FsrsScheduler(
+                    readWeights(properties, "fsrs.weights", new FsrsScheduler().getWeights()),
+                    readDouble(properties, "fsrs.requestedRetention", FsrsScheduler.DEFAULT_REQUESTED_RETENTION,
+                            Math.nextUp(0.0), Math.nextDown(1.0)),
+                    readInt(properties, "fsrs.maximumIntervalDays", FsrsScheduler.DEFAULT_MAXIMUM_INTERVAL_DAYS));
+        }
+        return new Sm2Scheduler(
+                readDouble(properties, "sm2.minimumEaseFactor", Sm2Scheduler.DEFAULT_MINIMUM_EASE_FACTOR,
+                        Math.nextUp(0.0), Double.MAX_VALUE),
+                readInt(properties, "sm2.firstIntervalDays", Sm2Scheduler.DEFAULT_FIRST_INTERVAL_DAYS),
+                readInt(properties, "sm2.secondIntervalDays", Sm2Scheduler.DEFAULT_SECOND_INTERVAL_DAYS),
+                readInt(properties, "sm2.failedIntervalDays", Sm2Scheduler.DEFAULT_FAILED_INTERVAL_DAYS));
+    }
+
+    /**
+     * Stores the scheduler's type and parameters. Schedulers other than the built-in
+     * ones cannot be stored.
+     */
+    public static void write(File file, SrsScheduler scheduler) throws IOException {
+        Properties properties = new Properties();
+        if (scheduler instanceof Sm2Scheduler) {
+            Sm2Scheduler sm2 = (Sm2Scheduler) scheduler;
+            properties.setProperty(ALGORITHM, SM2);
+            properties.setProperty("sm2.minimumEaseFactor", String.valueOf(sm2.getMinimumEaseFactor()));
+            properties.setProperty("sm2.firstIntervalDays", String.valueOf(sm2.getFirstIntervalDays()));
+            properties.setProperty("sm2.secondIntervalDays", String.valueOf(sm2.getSecondIntervalDays()));
+            properties.setProperty("sm2.failedIntervalDays", String.valueOf(sm2.getFailedIntervalDays()));
+        } else if (scheduler instanceof FsrsScheduler) {
+            FsrsScheduler fsrs = (FsrsScheduler) scheduler;
+            properties.setProperty(ALGORITHM, FSRS);
+            properties.setProperty("fsrs.weights", formatWeights(fsrs.getWeights()));
+            properties.setProperty("fsrs.requestedRetention", String.valueOf(fsrs.getRequestedRetention()));
+            properties.setProperty("fsrs.maximumIntervalDays", String.valueOf(fsrs.getMaximumIntervalDays()));
+        } else {
+            throw new IOException("Cannot store settings of scheduler " + scheduler.getName());
+        }
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create data directory " + directory);
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            properties.store(out, "SRS scheduler");
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static double readDouble(Properties properties, String key, double defaultValue, double min, double max) {
+        String text = properties.getProperty(key);
+        if (text == null) return defaultValue;
+        try {
+            double value = Double.parseDouble(text.trim());
+            if (value >= min && value <= max) return value;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        reportInvalid(key, text);
+        return defaultValue;
+    }
+
+    // Interval lengths in days, which must be at least 1
+    private static int readInt(Properties properties, String key, int defaultValue) {
+        String text = properties.getProperty(key);
+        if (text == null) return defaultValue;
+        try {
+            int value = Integer.parseInt(text.trim());
+            if (value >= 1) return value;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        reportInvalid(key, text);
+        return defaultValue;
+    }
+
+    // Exactly as many finite weights as the defaults have
+    private static double[] readWeights(Properties properties, String key, double[] defaults) {
+        String text = properties.getProperty(key);
+        if (text == null) return defaults;
+        String[] parts = text.split(",");
+        double[] weights = new double[parts.length];
+        boolean valid = parts.length == defaults.length;
+        try {
+            for (int i = 0; i < parts.length && valid; i++) {
+                weights[i] = Double.parseDouble(parts[i].trim());
+                valid = Double.isFinite(weights[i]);
+            }
+        } catch (NumberFormatException e) {
+            valid = false;
+        }
+        if (valid) return weights;
+        reportInvalid(key, text);
+        return defaults;
+    }
+
+    private static void reportInvalid(String key, String text) {
+        System.err.println("Invalid scheduler setting " + key + "=" + text + ", using its default");
+    }
+
+    private static String formatWeights(double[] weights) {
+        StringBuilder text = new StringBuilder();
+        for (double weight : weights) {
+            if (text.length() > 0) text.append(',');
+            text.append(weight);
+        }
+        return text.toString();
+    }
+}
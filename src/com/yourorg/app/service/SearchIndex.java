@@ -0,0 +1,351 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: SearchIndex.java
+// Description: Inverted index over course and resource text for the global search.
+//              Follows DataManager's change events; the searching thread indexes the
+//              changed text itself.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.Course;
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.model.Resource;
+
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Maps every token to the documents (courses and resources) containing it, with a weight
+ * per field: a match in a name or title counts more than one in a description or note.
+ *
+ * Indexing means decoding descriptions and notes, which may have to be read from disk,
+ * so it is never done by the thread making a change. Change events only record which
+ * courses changed (see dataChanged), without taking this index's lock. The next search
+ * indexes them from the latest DataSnapshot, whose frozen copies it can read without
+ * any DataManager lock; resources whose copy is the one already indexed are skipped.
+ * After loading, the whole index is built by the first search. Searches are synchronized.
+ */
+public class SearchIndex implements DataChangeEvent.Listener {
+
+    public enum Kind { COURSE, RESOURCE }
+
+    public static class Result {
+        public final Kind kind;
+        public final String id;
+        public final String title;
+        public final int score;
+
+        Result(Kind kind, String id, String title, int score) {
+            this.kind = kind;
+            this.id = id;
+            this.title = title;
+            this.score = score;
+        }
+    }
+
+    private static final int TITLE_WEIGHT = 4;
+    private static final int TEXT_WEIGHT = 1;
+    private static final int EXACT_MATCH_BONUS = 2; // Multiplier for whole-word matches over prefix matches
+
+    private static class Document {
+        final Kind kind;
+        final String id;
+        final String title;
+        final Map<String, Integer> weights; // Token -> weight in this document
+        final String[] sortedTokens;        // The same tokens, sorted for prefix lookups
+        final Resource source;              // The snapshot copy indexed; null for a course
+
+        Document(Kind kind, String id, String title, Map<String, Integer> weights, Resource source) {
+            this.kind = kind;
+            this.id = id;
+            this.title = title;
+            this.weights = weights;
+            this.sortedTokens = weights.keySet().toArray(new String[0]);
+            Arrays.sort(sortedTokens);
+            this.source = source;
+        }
+
+        /**
+         * @return The best score of any token of this document starting with the word, or 0.
+         */
+        int score(String word) {
+            int best = 0;
+            int i = Arrays.binarySearch(sortedTokens, word);
+            if (i >= 0) {
+                best = weights.get(word) * EXACT_MATCH_BONUS;
+                i++;
+            } else {
+                i = -i - 1;
+            }
+            for (; i < sortedTokens.length && sortedTokens[i].startsWith(word); i++) {
+                best = Math.max(best, weights.get(sortedTokens[i]));
+            }
+            return best;
+        }
+    }
+
+    // Token -> documents containing it. Sorted, so that prefixes are a sub map.
+    private final NavigableMap<String, Set<Document>> postings = new TreeMap<>();
+    private final Map<String, Document> documents = new HashMap<>(); // By key(kind, id)
+    private final TitleCompletionIndex titles = new TitleCompletionIndex(); // Names and titles only, for complete()
+    private final Map<EntityId, List<Resource>> indexedResources = new HashMap<>(); // Snapshot copies, by course
+
+    // Recorded by the threads making changes, without the lock; handled by the next search
+    private final Supplier<DataSnapshot> source;
+    private final Set<EntityId> changedCourses = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuild = true;
+
+    /**
+     * @param source Returns the latest snapshot. A change must be published in it before
+     *               its event is passed to dataChanged.
+     */
+    public SearchIndex(Supplier<DataSnapshot> source) {
+        this.source = source;
+    }
+
+    /**
+     * Records what the event changed. Never blocks, so it may be called by a writer.
+     */
+    @Override
+    public void dataChanged(DataChangeEvent event) {
+        switch (event.kind) {
+            case DATA_LOADED:
+                rebuild = true;
+                break;
+            case COURSE_ADDED:
+            case COURSE_UPDATED:
+            case COURSE_DELETED:
+            case RESOURCE_ADDED:
+            case RESOURCE_UPDATED:
+            case RESOURCE_DELETED:
+                changedCourses.add(event.courseId);
+                break;
+            default: // Reviews and time logs do not change any text
+                break;
+        }
+    }
+
+    /**
+     * Suggests course names and resource titles for a partly typed query. Every word
+     * of the query must match a title word by prefix or, for longer words, with a typo.
+     * @return Up to 'limit' completions, best first.
+     */
+    public synchronized List<Result> complete(String query, int limit) {
+        update();
+        return titles.complete(query, limit);
+    }
+
+    /**
+     * Finds the documents containing every word of the query. The last word may be
+     * incomplete, as may the others: each word matches all tokens it is a prefix of.
+     * Returns early with an empty list if the calling thread is interrupted.
+     * @param limit The maximum number of results.
+     * @return The best matches, highest score first.
+     */
+    public synchronized List<Result> search(String query, int limit) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (words.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        update();
+
+        // The most selective word supplies the candidates; the other words are only
+        // checked against those candidates' own (sorted) tokens.
+        Collection<Set<Document>> rarestPostings = null;
+        long rarestCount = Long.MAX_VALUE;
+        for (String word : words) {
+            Collection<Set<Document>> matching = postings.subMap(word, true, word + Character.MAX_VALUE, true).values();
+            long count = 0;
+            for (Set<Document> documents : matching) {
+                count += documents.size();
+            }
+            if (count == 0) {
+                return new ArrayList<>(); // No document can contain every word
+            }
+            if (count < rarestCount) {
+                rarestPostings = matching;
+                rarestCount = count;
+            }
+        }
+
+        Comparator<Result> ranking = Comparator.<Result>comparingInt(r -> r.score).reversed()
+                .thenComparing(r -> r.title, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+        PriorityQueue<Result> best = new PriorityQueue<>(limit + 1, ranking.reversed()); // Worst result on top
+        Set<Document> seen = rarestPostings.size() > 1 ? new HashSet<>() : null; // A document may match several tokens
+        int checked = 0;
+        for (Set<Document> documents : rarestPostings) {
+            candidates:
+            for (Document document : documents) {
+                if ((++checked & 1023) == 0 && Thread.currentThread().isInterrupted()) {
+                    return new ArrayList<>(); // Superseded by a newer query
+                }
+                if (seen != null && !seen.add(document)) continue;
+                int score = 0;
+                for (String word : words) {
+                    int wordScore = document.score(word);
+                    if (wordScore == 0) continue candidates;
+                    score += wordScore;
+                }
+                if (best.size() == limit && !beats(score, document.title, best.peek())) continue; // Cannot make the cut
+                best.add(new Result(document.kind, document.id, document.title, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<Result> results = new ArrayList<>(best);
+        results.sort(ranking);
+        return results;
+    }
+
+    // --- Internals ---
+
+    // Same order as the ranking comparator, without allocating a Result first
+    private static boolean beats(int score, String title, Result worst) {
+        if (score != worst.score) return score > worst.score;
+        if (title == null || worst.title == null) return title != null;
+        return String.CASE_INSENSITIVE_ORDER.compare(title, worst.title) < 0;
+    }
+
+    // Indexes the changes recorded since the last call
+    private void update() {
+        if (rebuild) {
+            rebuild = false;
+            changedCourses.clear(); // The snapshot taken below contains their changes
+            postings.clear();
+            documents.clear();
+            titles.clear();
+            indexedResources.clear();
+            for (Course course : source.get().getCourses()) {
+                updateCourse(course.getEntityId(), course);
+            }
+            return;
+        }
+        if (changedCourses.isEmpty()) return;
+        List<EntityId> changed = new ArrayList<>();
+        for (Iterator<EntityId> it = changedCourses.iterator(); it.hasNext(); ) {
+            changed.add(it.next());
+            it.remove();
+        }
+        DataSnapshot snapshot = source.get(); // Taken after the removal, so it contains those changes
+        for (EntityId courseId : changed) {
+            updateCourse(courseId, snapshot.getCourse(courseId));
+        }
+    }
+
+    /**
+     * Brings a course and its resources up to date with their snapshot copies.
+     * @param course The course's snapshot copy, or null if it has been deleted.
+     */
+    private void updateCourse(EntityId courseId, Course course) {
+        if (course != null) {
+            put(courseDocument(course));
+        } else {
+            removeNow(key(Kind.COURSE, courseId.toString()));
+        }
+        List<Resource> indexed = indexedResources.getOrDefault(courseId, Collections.emptyList());
+        List<Resource> current = course != null ? course.getResources() : Collections.emptyList();
+        if (indexed == current) {
+            return; // Immutable, so the same list means the same resources
+        }
+        Set<EntityId> currentIds = new HashSet<>();
+        for (Resource resource : current) {
+            currentIds.add(resource.getEntityId());
+        }
+        for (Resource resource : indexed) {
+            if (!currentIds.contains(resource.getEntityId())) {
+                removeNow(key(Kind.RESOURCE, resource.getId()));
+            }
+        }
+        for (Resource resource : current) {
+            Document document = documents.get(key(Kind.RESOURCE, resource.getId()));
+            if (document == null || document.source != resource) { // Snapshots reuse the copies of unchanged resources
+                put(resourceDocument(resource));
+            }
+        }
+        if (course != null) {
+            indexedResources.put(courseId, current);
+        } else {
+            indexedResources.remove(courseId);
+        }
+    }
+
+    private static Document courseDocument(Course course) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTokens(weights, course.getName(), TITLE_WEIGHT);
+        addTokens(weights, course.getDescription(), TEXT_WEIGHT);
+        return new Document(Kind.COURSE, course.getId(), course.getName(), weights, null);
+    }
+
+    private static Document resourceDocument(Resource resource) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTokens(weights, resource.getTitle(), TITLE_WEIGHT);
+        addTokens(weights, resource.getDescription(), TEXT_WEIGHT);
+        if (resource.getType() == Resource.ResourceType.NOTE) { // Other content is a URL or file path
+            try {
+                addTokens(weights, resource.getContent(), TEXT_WEIGHT);
+            } catch (UncheckedIOException e) {
+                System.err.println("Indexing resource " + resource.getId() + " without its content: " + e.getMessage());
+            }
+        }
+        return new Document(Kind.RESOURCE, resource.getId(), resource.getTitle(), weights, resource);
+    }
+
+    private void put(Document document) {
+        Document previous = documents.put(key(document.kind, document.id), document);
+        if (previous != null) {
+            unlink(previous);
+        }
+        titles.put(key(document.kind, document.id), document.kind, document.id, document.title);
+        for (String token : document.weights.keySet()) {
+            postings.computeIfAbsent(token, t -> new HashSet<>()).add(document);
+        }
+    }
+
+    private void removeNow(String key) {
+        Document document = documents.remove(key);
+        if (document != null) {
+            unlink(document);
+        }
+        titles.remove(key);
+    }
+
+    private void unlink(Document document) {
+        for (String token : document.weights.keySet()) {
+            Set<Document> containing = postings.get(token);
+            if (containing != null) {
+                containing.remove(document);
+                if (containing.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    private static String key(Kind kind, String id) {
+        return (kind == Kind.COURSE ? "c:" : "r:") + id;
+    }
+
+    private static void addTokens(Map<String, Integer> weights, String text, int weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Math::max);
+        }
+    }
+
+    /**
+     * Splits text into lower-case words (letters and digits).
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
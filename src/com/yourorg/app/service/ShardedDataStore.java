@@ -0,0 +1,328 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: ShardedDataStore.java
+// Description: Directory-based storage layout: one shard file per course (with its
+//              resources), a separate time log store and a manifest listing the shards.
+//              Only changed shards are rewritten; shards are read in parallel on load.
+//              Shards are memory-mapped, and resource texts are decoded from them on demand.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.Course;
+import com.yourorg.app.model.LazyText;
+import com.yourorg.app.model.Resource;
+import com.yourorg.app.model.TimeLog;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/*
+ * Layout:
+ *   <dir>/manifest.dat           course order and the journal sequence number covered
+ *   <dir>/courses/<id>.dat       one course with its resources
+ *   <dir>/timelogs.dat           all time logs that are not archived
+ *   <dir>/timelogs-<id>.archive  older time logs, see TimeLogArchive; the manifest names
+ *                                the current version
+ *   <dir>/blobs/<hash>.blob      large resource contents, see BlobStore
+ *
+ * A checkpoint writes the changed shards first and the manifest last, each through a
+ * temporary file and an atomic rename. A crash in between leaves shards that are newer
+ * than the manifest, which is harmless because the journal is replayed on top of them.
+ *
+ * Loaded resources keep reading their description and content from the mapped shard.
+ * A rewritten shard is mapped again in its place, with the texts it still contains read
+ * from their new position (see MappedFile.remap); a deleted shard is released (copied to
+ * the heap and unmapped) first.
+ */
+public class ShardedDataStore {
+
+    private static final String MANIFEST_FILE = "manifest.dat";
+    private static final String TIME_LOG_FILE = "timelogs.dat";
+    private static final String COURSES_DIR = "courses";
+    private static final String BLOBS_DIR = "blobs";
+    private static final String SHARD_SUFFIX = ".dat";
+
+    private final File directory;
+    private final File coursesDirectory;
+    private final BlobStore blobs;
+    private final Map<String, MappedFile> mappedShards = new ConcurrentHashMap<>(); // By course ID
+
+    public ShardedDataStore(File directory) {
+        this.directory = directory;
+        this.coursesDirectory = new File(directory, COURSES_DIR);
+        this.blobs = new BlobStore(new File(directory, BLOBS_DIR), BlobStore.DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * @return The store of large note contents, which journal records refer to as well.
+     */
+    public BlobStore getBlobStore() {
+        return blobs;
+    }
+
+    /**
+     * @return true if a data set has been written in this layout.
+     */
+    public boolean exists() {
+        return new File(directory, MANIFEST_FILE).isFile();
+    }
+
+    /**
+     * @return An archive without logs, for a data set that has none yet.
+     */
+    public TimeLogArchive emptyArchive() {
+        return TimeLogArchive.empty(directory);
+    }
+
+    /**
+     * Loads the manifest, then every course shard and the time log store in parallel.
+     * The time log archive is mapped, not read.
+     */
+    public DataCodec.Contents load() throws IOException {
+        releaseAll(); // Shards mapped by an earlier load
+        DataCodec.Manifest manifest = DataCodec.readManifest(new File(directory, MANIFEST_FILE));
+
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), manifest.courseIds.size() + 1));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "DataManager-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<List<TimeLog>> timeLogsFuture = pool.submit(() -> {
+                File timeLogFile = new File(directory, TIME_LOG_FILE);
+                return timeLogFile.isFile() ? DataCodec.readTimeLogFile(timeLogFile) : new ArrayList<>();
+            });
+            List<Future<Course>> courseFutures = new ArrayList<>(manifest.courseIds.size());
+            for (String courseId : manifest.courseIds) {
+                courseFutures.add(pool.submit(() -> readShard(courseId)));
+            }
+
+            List<Course> courses = new ArrayList<>(courseFutures.size());
+            for (Future<Course> future : courseFutures) {
+                courses.add(getLoaded(future));
+            }
+            List<TimeLog> timeLogs = getLoaded(timeLogsFuture);
+            TimeLogArchive archive = manifest.archiveFileName != null
+                    ? TimeLogArchive.open(new File(directory, manifest.archiveFileName)) : emptyArchive();
+            removeOrphanShards(manifest.courseIds);
+            removeOrphanArchives(manifest.archiveFileName);
+            return new DataCodec.Contents(courses, timeLogs, manifest.checkpointSeq, archive);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes a checkpoint.
+     * @param changedCourses Courses whose shards must be rewritten.
+     * @param deletedCourseIds Courses whose shards can be removed.
+     * @param courseOrder Ids of all courses, in display order.
+     * @param timeLogs All time logs that are not archived, or null if they have not changed.
+     * @param archive The current archive version, already written. May be null.
+     * @param checkpointSeq The journal sequence number this checkpoint covers.
+     */
+    public void save(Collection<Course> changedCourses, Collection<String> deletedCourseIds, List<String> courseOrder,
+                     List<TimeLog> timeLogs, TimeLogArchive archive, long checkpointSeq) throws IOException {
+        if (!coursesDirectory.isDirectory() && !coursesDirectory.mkdirs()) {
+            throw new IOException("Could not create data directory " + coursesDirectory);
+        }
+        for (Course course : changedCourses) {
+            writeShard(course);
+        }
+        if (timeLogs != null) {
+            writeAtomically(new File(directory, TIME_LOG_FILE), out -> DataCodec.writeTimeLogFile(out, timeLogs));
+        }
+        String archiveFileName = archive != null ? archive.getFileName() : null;
+        writeAtomically(new File(directory, MANIFEST_FILE),
+                out -> DataCodec.writeManifest(out, courseOrder, archiveFileName, checkpointSeq));
+
+        for (String courseId : deletedCourseIds) {
+            if (!courseOrder.contains(courseId)) {
+                release(courseId);
+                Files.deleteIfExists(shardFile(courseId).toPath());
+            }
+        }
+    }
+
+    private File shardFile(String courseId) {
+        return new File(coursesDirectory, courseId + SHARD_SUFFIX);
+    }
+
+    private Course readShard(String courseId) throws IOException {
+        File file = shardFile(courseId);
+        MappedFile shard = MappedFile.open(file);
+        try {
+            Course course = DataCodec.readCourseShard(shard, file, blobs);
+            List<LazyText> texts = new ArrayList<>();
+            for (Resource resource : course.getResources()) {
+                addIfPresent(texts, resource.getLazyDescription());
+                addIfPresent(texts, resource.getLazyContent());
+            }
+            shard.track(texts);
+            mappedShards.put(courseId, shard);
+            return course;
+        } catch (IOException | RuntimeException e) {
+            shard.release();
+            throw e;
+        }
+    }
+
+    private static void addIfPresent(List<LazyText> texts, LazyText text) {
+        if (text != null) {
+            texts.add(text);
+        }
+    }
+
+    /**
+     * Rewrites a course's shard. If the old one is mapped, the new one is parsed first to
+     * find where the texts it still contains went, and then mapped in its place.
+     */
+    private void writeShard(Course course) throws IOException {
+        File file = shardFile(course.getId());
+        File tmpFile = writeTemporary(file, out -> DataCodec.writeCourseShard(out, course, blobs));
+        MappedFile shard = mappedShards.get(course.getId());
+        if (shard == null) {
+            moveIntoPlace(tmpFile, file);
+            return;
+        }
+        Map<Long, Long> relocated = new HashMap<>();
+        MappedFile written = MappedFile.open(tmpFile);
+        try {
+            List<Resource> writtenResources = DataCodec.readCourseShard(written, tmpFile, blobs).getResources();
+            List<Resource> resources = course.getResources();
+            for (int i = 0; i < resources.size(); i++) { // Written in the same order
+                Resource resource = resources.get(i);
+                Resource writtenResource = writtenResources.get(i);
+                relocate(relocated, shard, resource.getLazyDescription(), written, writtenResource.getLazyDescription());
+                relocate(relocated, shard, resource.getLazyContent(), written, writtenResource.getLazyContent());
+            }
+        } finally {
+            written.close(); // Unmapped before the rename, as the shard itself is
+        }
+        shard.remap(file, relocated, () -> moveIntoPlace(tmpFile, file));
+    }
+
+    private static void relocate(Map<Long, Long> relocated, MappedFile shard, LazyText text,
+                                 MappedFile written, LazyText writtenText) {
+        if (text != null && text.getSource() == shard && writtenText != null && writtenText.getSource() == written) {
+            relocated.put(text.getOffset(), writtenText.getOffset());
+        }
+    }
+
+    private void release(String courseId) {
+        MappedFile shard = mappedShards.remove(courseId);
+        if (shard != null) {
+            shard.release();
+        }
+    }
+
+    private void releaseAll() {
+        for (String courseId : mappedShards.keySet()) {
+            release(courseId);
+        }
+    }
+
+    /**
+     * Deletes shards that are not listed in the manifest, e.g. left behind by a
+     * checkpoint that was interrupted before the manifest was written.
+     */
+    private void removeOrphanShards(List<String> courseIds) {
+        File[] files = coursesDirectory.listFiles((dir, name) -> name.endsWith(SHARD_SUFFIX));
+        if (files == null) return;
+        Set<String> listed = new HashSet<>(courseIds);
+        for (File file : files) {
+            String courseId = file.getName().substring(0, file.getName().length() - SHARD_SUFFIX.length());
+            if (!listed.contains(courseId) && !file.delete()) {
+                System.err.println("Could not delete orphaned course shard " + file);
+            }
+        }
+    }
+
+    /**
+     * Deletes archive versions other than the current one. Only done on load: while the
+     * application runs, a newer version may exist that no manifest names yet.
+     */
+    private void removeOrphanArchives(String archiveFileName) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(TimeLogArchive.FILE_SUFFIX)
+                || name.endsWith(TimeLogArchive.FILE_SUFFIX + ".tmp"));
+        if (files == null) return;
+        for (File file : files) {
+            if (!file.getName().equals(archiveFileName) && !file.delete()) {
+                System.err.println("Could not delete old time log archive " + file);
+            }
+        }
+    }
+
+    /**
+     * Deletes blobs no resource refers to, e.g. the old text of an edited note. Called
+     * once the journal has been replayed on top of the loaded data, as its records can
+     * refer to blobs that no shard does yet.
+     */
+    public void removeUnusedBlobs(Collection<Course> courses) {
+        Set<String> referenced = new HashSet<>();
+        for (Course course : courses) {
+            for (Resource resource : course.getResources()) {
+                LazyText content = resource.getLazyContent();
+                String hash = content != null ? blobs.hashOf(content) : null;
+                if (hash != null) {
+                    referenced.add(hash);
+                }
+            }
+        }
+        blobs.retainOnly(referenced);
+    }
+
+    private static <T> T getLoaded(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Error loading data: " + cause, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading data");
+        }
+    }
+
+    private interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static void writeAtomically(File target, ContentWriter writer) throws IOException {
+        moveIntoPlace(writeTemporary(target, writer), target);
+    }
+
+    private static File writeTemporary(File target, ContentWriter writer) throws IOException {
+        File tmpFile = new File(target.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+            BufferedOutputStream out = new BufferedOutputStream(fos, 64 * 1024);
+            writer.write(out);
+            out.flush();
+            fos.getFD().sync();
+        }
+        return tmpFile;
+    }
+
+    private static void moveIntoPlace(File tmpFile, File target) throws IOException {
+        try {
+            Files.move(tmpFile.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: Sm2Scheduler.java
+// Description: The default scheduler: a simplified SM-2, with an ease factor per
+//              resource that grows or shrinks with each answer and multiplies the interval.
+// ====================================================================================
+package com.yourorg.app.service;
+
+/**
+ * Immutable. The defaults are the parameters the application has always used.
+ */
+public final class Sm2Scheduler implements SrsScheduler {
+
+    public static final double DEFAULT_MINIMUM_EASE_FACTOR = 1.3;
+    public static final int DEFAULT_FIRST_INTERVAL_DAYS = 1;  // After the first successful review
+    public static final int DEFAULT_SECOND_INTERVAL_DAYS = 6; // After the second
+    public static final int DEFAULT_FAILED_INTERVAL_DAYS = 1; // After any answer below 3
+
+    private final double minimumEaseFactor;
+    private final int firstIntervalDays;
+    private final int secondIntervalDays;
+    private final int failedIntervalDays;
+
+    public Sm2Scheduler() {
+        this(DEFAULT_MINIMUM_EASE_FACTOR, DEFAULT_FIRST_INTERVAL_DAYS, DEFAULT_SECOND_INTERVAL_DAYS,
+                DEFAULT_FAILED_INTERVAL_DAYS);
+    }
+
+    public Sm2Scheduler(double minimumEaseFactor, int firstIntervalDays, int secondIntervalDays,
+                        int failedIntervalDays) {
+        if (minimumEaseFactor <= 0 || firstIntervalDays < 1 || secondIntervalDays < 1 || failedIntervalDays < 1) {
+            throw new IllegalArgumentException("SM-2 parameters must be positive");
+        }
+        this.minimumEaseFactor = minimumEaseFactor;
+        this.firstIntervalDays = firstIntervalDays;
+        this.secondIntervalDays = secondIntervalDays;
+        this.failedIntervalDays = failedIntervalDays;
+    }
+
+    @Override
+    public void review(SrsState state, int quality, long reviewDay) {
+        double easeFactor = state.getEaseFactor() + (0.1 - (5 - quality) * (0.08 + (5 - quality) * 0.02));
+        if (easeFactor < minimumEaseFactor) easeFactor = minimumEaseFactor;
+
+        int previousInterval = state.getIntervalDays();
+        int interval;
+        if (quality < 3) { // Forgot or hard - start over with a short interval
+            interval = failedIntervalDays;
+        } else if (previousInterval == 0) { // First successful review
+            interval = firstIntervalDays;
+        } else if (previousInterval == firstIntervalDays) { // Second successful review
+            interval = secondIntervalDays;
+        } else {
+            interval = (int) Math.round(previousInterval * easeFactor);
+        }
+
+        state.setEaseFactor(easeFactor);
+        state.setIntervalDays(interval);
+        state.setLastReviewDay(reviewDay);
+        state.setNextReviewDay(reviewDay + interval);
+    }
+
+    @Override
+    public String getName() {
+        return "SM-2";
+    }
+
+    public double getMinimumEaseFactor() { return minimumEaseFactor; }
+    public int getFirstIntervalDays() { return firstIntervalDays; }
+    public int getSecondIntervalDays() { return secondIntervalDays; }
+    public int getFailedIntervalDays() { return failedIntervalDays; }
+
+    @Override
+    public String toString() {
+        return "Sm2Scheduler{" +
+                "minimumEaseFactor=" + minimumEaseFactor +
+                ", firstIntervalDays=" + firstIntervalDays +
+                ", secondIntervalDays=" + secondIntervalDays +
+                ", failedIntervalDays=" + failedIntervalDays +
+                '}';
+    }
+}
@@ -0,0 +1,32 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: SrsScheduler.java
+// Description: Service provider interface for spaced repetition algorithms: given a
+//              resource's state and one answer, computes the state after the review.
+// ====================================================================================
+package com.yourorg.app.service;
+
+/**
+ * Implementations must be immutable (and so thread-safe) and must not allocate in
+ * review(): bulk rescheduling replays every review of every resource through it.
+ * Parameters are fixed at construction; to change them, install a new scheduler with
+ * DataManager.setScheduler().
+ */
+public interface SrsScheduler {
+
+    int MIN_QUALITY = 0; // Blackout
+    int MAX_QUALITY = 5; // Perfect recall
+
+    /**
+     * Applies one review. On entry 'state' holds the state before the review, on return
+     * the state after it, including its last and next review days.
+     * @param quality The quality of recall, MIN_QUALITY to MAX_QUALITY (as in ResourceReviewPanel).
+     * @param reviewDay The day of the review, as an epoch day.
+     */
+    void review(SrsState state, int quality, long reviewDay);
+
+    /**
+     * @return A short name for display, e.g. "SM-2".
+     */
+    String getName();
+}
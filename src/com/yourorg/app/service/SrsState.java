@@ -0,0 +1,121 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: SrsState.java
+// Description: The spaced repetition state of one resource, held in primitives so that
+//              an SrsScheduler can update it without allocating anything.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.Resource;
+
+import java.time.LocalDate;
+
+/**
+ * A reusable work area: load() it from a resource, let the scheduler apply one or more
+ * reviews, then store() the result back. Dates are epoch days, NO_DAY for none.
+ * Not thread-safe; each thread that schedules needs its own.
+ */
+public final class SrsState {
+
+    public static final long NO_DAY = Long.MIN_VALUE;
+
+    // The state of a resource that has never been reviewed, as set by the Resource constructor
+    public static final double INITIAL_EASE_FACTOR = 2.5;
+
+    private long lastReviewDay;
+    private long nextReviewDay;
+    private int intervalDays;
+    private double easeFactor;
+    private double stability;
+    private double difficulty;
+
+    public SrsState() {
+        reset(NO_DAY);
+    }
+
+    /**
+     * Sets the state of a resource that has never been reviewed.
+     * @param createdDay The day the resource became due for its first review, or NO_DAY.
+     */
+    public void reset(long createdDay) {
+        lastReviewDay = NO_DAY;
+        nextReviewDay = createdDay;
+        intervalDays = 0;
+        easeFactor = INITIAL_EASE_FACTOR;
+        stability = 0;
+        difficulty = 0;
+    }
+
+    public void load(Resource resource) {
+        lastReviewDay = toDay(resource.getLastReviewedDate());
+        nextReviewDay = toDay(resource.getNextReviewDate());
+        intervalDays = resource.getReviewIntervalDays();
+        easeFactor = resource.getEaseFactor();
+        stability = resource.getStability();
+        difficulty = resource.getDifficulty();
+    }
+
+    /**
+     * Writes the state to the resource. Dates that did not change keep their LocalDate.
+     * The caller must update the DueDateIndex if the resource is indexed.
+     */
+    public void store(Resource resource) {
+        if (toDay(resource.getLastReviewedDate()) != lastReviewDay) {
+            resource.setLastReviewedDate(toDate(lastReviewDay));
+        }
+        if (toDay(resource.getNextReviewDate()) != nextReviewDay) {
+            resource.setNextReviewDate(toDate(nextReviewDay));
+        }
+        resource.setReviewIntervalDays(intervalDays);
+        resource.setEaseFactor(easeFactor);
+        resource.setStability(stability);
+        resource.setDifficulty(difficulty);
+    }
+
+    /**
+     * @return true if the resource already has this state.
+     */
+    public boolean matches(Resource resource) {
+        return toDay(resource.getLastReviewedDate()) == lastReviewDay
+                && toDay(resource.getNextReviewDate()) == nextReviewDay
+                && resource.getReviewIntervalDays() == intervalDays
+                && Double.compare(resource.getEaseFactor(), easeFactor) == 0
+                && Double.compare(resource.getStability(), stability) == 0
+                && Double.compare(resource.getDifficulty(), difficulty) == 0;
+    }
+
+    // --- Getters and Setters ---
+    public long getLastReviewDay() { return lastReviewDay; }
+    public long getNextReviewDay() { return nextReviewDay; }
+    public int getIntervalDays() { return intervalDays; }
+    public double getEaseFactor() { return easeFactor; }
+    public double getStability() { return stability; }
+    public double getDifficulty() { return difficulty; }
+
+    public void setLastReviewDay(long lastReviewDay) { this.lastReviewDay = lastReviewDay; }
+    public void setNextReviewDay(long nextReviewDay) { this.nextReviewDay = nextReviewDay; }
+    public void setIntervalDays(int intervalDays) { this.intervalDays = intervalDays; }
+    public void setEaseFactor(double easeFactor) { this.easeFactor = easeFactor; }
+    public void setStability(double stability) { this.stability = stability; }
+    public void setDifficulty(double difficulty) { this.difficulty = difficulty; }
+
+    private static long toDay(LocalDate date) {
+        return date != null ? date.toEpochDay() : NO_DAY;
+    }
+
+    private static LocalDate toDate(long day) {
+        return day != NO_DAY ? LocalDate.ofEpochDay(day) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "SrsState{" +
+                "lastReviewDay=" + lastReviewDay +
+                ", nextReviewDay=" + nextReviewDay +
+                ", intervalDays=" + intervalDays +
+                ", easeFactor=" + easeFactor +
+                ", stability=" + stability +
+                ", difficulty=" + difficulty +
+                '}';
+    }
+}
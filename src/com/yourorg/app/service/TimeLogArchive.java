@@ -0,0 +1,303 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: TimeLogArchive.java
+// Description: Read-only archive of old time logs in a memory-mapped file of fixed-width
+//              records, read through a MemorySegment so archived logs stay off the heap.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.model.TimeLog;
+
+import java.io.*;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/*
+ * File layout (big-endian, written with DataOutputStream):
+ *   int magic, int version, long count, int minDay, int maxDay      HEADER_SIZE bytes
+ *   count x record:
+ *     long resourceHigh, long resourceLow, long idHigh, long idLow,
+ *     int day (epoch day, NO_DATE if none), int durationSeconds,
+ *     int quality (TimeLog.NO_QUALITY if unknown), int unused      RECORD_SIZE bytes
+ * Records are padded to a multiple of 8 bytes so that the longs of every record stay
+ * aligned in the mapping.
+ *
+ * Records are sorted by resource ID, then by day, so the logs of one resource are a
+ * contiguous range found by binary search. A file is never modified: archiving more
+ * logs or dropping a deleted resource's logs writes a new file, which becomes current
+ * once a checkpoint's manifest names it. The mapping lives in an automatic arena and is
+ * released when no snapshot references the archive any more.
+ */
+public final class TimeLogArchive {
+
+    private static final int MAGIC = 0x53525441; // "SRTA"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_SIZE = 48;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final String FILE_PREFIX = "timelogs-";
+    static final String FILE_SUFFIX = ".archive";
+
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private static final Comparator<TimeLog> FILE_ORDER = Comparator.comparing(TimeLog::getResourceEntityId)
+            .thenComparingInt(TimeLogArchive::dayOf);
+
+    private final File directory; // Where new versions of the archive are written
+    private final File file;      // Null for an empty archive that has no file yet
+    private final MemorySegment records;
+    private final int size;
+    private final int minDay;
+    private final int maxDay;
+
+    private TimeLogArchive(File directory, File file, MemorySegment records, int size, int minDay, int maxDay) {
+        this.directory = directory;
+        this.file = file;
+        this.records = records;
+        this.size = size;
+        this.minDay = minDay;
+        this.maxDay = maxDay;
+    }
+
+    /**
+     * @return An archive without logs whose first version will be written to the directory.
+     */
+    public static TimeLogArchive empty(File directory) {
+        return new TimeLogArchive(directory, null, MemorySegment.NULL, 0, NO_DATE, NO_DATE);
+    }
+
+    public static TimeLogArchive open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MemorySegment mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+            if (mapped.byteSize() < HEADER_SIZE || mapped.get(INT, 0) != MAGIC) {
+                throw new IOException("Unexpected file type: " + file);
+            }
+            int version = mapped.get(INT, 4);
+            if (version != FORMAT_VERSION) {
+                throw new IOException(file + " has format version " + version
+                        + ", this application only reads " + FORMAT_VERSION);
+            }
+            long count = mapped.get(LONG, 8);
+            if (count < 0 || count > Integer.MAX_VALUE || HEADER_SIZE + count * RECORD_SIZE > mapped.byteSize()) {
+                throw new IOException("Time log archive " + file + " is corrupt: " + count + " records");
+            }
+            return new TimeLogArchive(file.getParentFile(), file, mapped.asSlice(HEADER_SIZE, count * RECORD_SIZE),
+                    (int) count, mapped.get(INT, 16), mapped.get(INT, 20));
+        }
+    }
+
+    /**
+     * @return The file name of this version, or null if nothing has been archived yet.
+     */
+    public String getFileName() {
+        return file != null ? file.getName() : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Materializes one record. Each call creates a new TimeLog.
+     */
+    public TimeLog get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        long offset = (long) index * RECORD_SIZE;
+        EntityId resourceId = new EntityId(records.get(LONG, offset), records.get(LONG, offset + 8));
+        EntityId id = new EntityId(records.get(LONG, offset + 16), records.get(LONG, offset + 24));
+        int day = records.get(INT, offset + 32);
+        return new TimeLog(id, resourceId, records.get(INT, offset + 36), day != NO_DATE ? LocalDate.ofEpochDay(day) : null,
+                qualityAt(offset));
+    }
+
+    /**
+     * Passes every archived review to the visitor, in file order, without creating TimeLogs.
+     */
+    public void forEachReview(TimeLogStore.ReviewVisitor visitor) {
+        EntityId resourceId = null;
+        for (int i = 0; i < size; i++) {
+            long offset = (long) i * RECORD_SIZE;
+            if (resourceId == null || !isResource(i, resourceId)) { // A new run of one resource's records
+                resourceId = new EntityId(records.get(LONG, offset), records.get(LONG, offset + 8));
+            }
+            visitor.visit(resourceId, records.get(INT, offset + 32), qualityAt(offset));
+        }
+    }
+
+    public List<TimeLog> getForResource(EntityId resourceId) {
+        List<TimeLog> logs = new ArrayList<>();
+        for (int i = firstIndexOf(resourceId); i < size && isResource(i, resourceId); i++) {
+            logs.add(get(i));
+        }
+        return logs;
+    }
+
+    /**
+     * @return The logs dated between from and to (both inclusive), in date order. Scans
+     *         the day column only, without creating objects for logs outside the range.
+     */
+    public List<TimeLog> getBetween(LocalDate from, LocalDate to) {
+        List<TimeLog> logs = new ArrayList<>();
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        if (size == 0 || fromDay > maxDay || toDay < minDay) {
+            return logs;
+        }
+        for (int i = 0; i < size; i++) {
+            int day = records.get(INT, (long) i * RECORD_SIZE + 32);
+            if (day != NO_DATE && day >= fromDay && day <= toDay) {
+                logs.add(get(i));
+            }
+        }
+        logs.sort(Comparator.comparing(TimeLog::getDate));
+        return logs;
+    }
+
+    /**
+     * @return The most recent archived log date, or null if no archived log has a date.
+     */
+    public LocalDate getLastDate() {
+        return maxDay != NO_DATE ? LocalDate.ofEpochDay(maxDay) : null;
+    }
+
+    public boolean contains(EntityId resourceId, EntityId id) {
+        for (int i = firstIndexOf(resourceId); i < size && isResource(i, resourceId); i++) {
+            long offset = (long) i * RECORD_SIZE;
+            if (records.get(LONG, offset + 16) == id.getHigh() && records.get(LONG, offset + 24) == id.getLow()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of archived logs belonging to any of the resources.
+     */
+    public int countForResources(Collection<EntityId> resourceIds) {
+        int count = 0;
+        for (EntityId resourceId : resourceIds) {
+            for (int i = firstIndexOf(resourceId); i < size && isResource(i, resourceId); i++) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes a new version of the archive: these records without the logs of the removed
+     * resources, merged with the added logs. This archive stays valid and unchanged.
+     * @return The new version, opened.
+     */
+    public TimeLogArchive rewrite(List<TimeLog> added, Set<EntityId> removedResources) throws IOException {
+        List<TimeLog> sortedAdded = new ArrayList<>(added);
+        sortedAdded.sort(FILE_ORDER);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create data directory " + directory);
+        }
+        File newFile = new File(directory, FILE_PREFIX + EntityId.random() + FILE_SUFFIX);
+        File tempFile = new File(directory, newFile.getName() + ".tmp");
+        int count = 0;
+        int newMinDay = NO_DATE;
+        int newMaxDay = NO_DATE;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(0); // Count and day range, filled in below
+            out.writeInt(NO_DATE);
+            out.writeInt(NO_DATE);
+
+            int next = 0; // Next added log to merge in
+            for (int i = 0; i <= size; i++) {
+                TimeLog existing = i < size ? get(i) : null;
+                while (next < sortedAdded.size() && (existing == null || FILE_ORDER.compare(sortedAdded.get(next), existing) <= 0)) {
+                    TimeLog log = sortedAdded.get(next++);
+                    if (removedResources.contains(log.getResourceEntityId())) continue;
+                    writeRecord(out, log);
+                    count++;
+                    int day = dayOf(log);
+                    if (day != NO_DATE) {
+                        newMinDay = newMinDay == NO_DATE ? day : Math.min(newMinDay, day);
+                        newMaxDay = Math.max(newMaxDay, day);
+                    }
+                }
+                if (existing == null || removedResources.contains(existing.getResourceEntityId())) continue;
+                writeRecord(out, existing);
+                count++;
+                int day = dayOf(existing);
+                if (day != NO_DATE) {
+                    newMinDay = newMinDay == NO_DATE ? day : Math.min(newMinDay, day);
+                    newMaxDay = Math.max(newMaxDay, day);
+                }
+            }
+        }
+        try (RandomAccessFile header = new RandomAccessFile(tempFile, "rw")) {
+            header.seek(8);
+            header.writeLong(count);
+            header.writeInt(newMinDay);
+            header.writeInt(newMaxDay);
+            header.getFD().sync();
+        }
+        if (!tempFile.renameTo(newFile)) {
+            throw new IOException("Could not rename " + tempFile + " to " + newFile);
+        }
+        return open(newFile);
+    }
+
+    // --- Internals ---
+
+    private static void writeRecord(DataOutputStream out, TimeLog log) throws IOException {
+        out.writeLong(log.getResourceEntityId().getHigh());
+        out.writeLong(log.getResourceEntityId().getLow());
+        out.writeLong(log.getEntityId().getHigh());
+        out.writeLong(log.getEntityId().getLow());
+        out.writeInt(dayOf(log));
+        out.writeInt((int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, log.getDurationSeconds())));
+        out.writeInt(log.getQuality());
+        out.writeInt(0);
+    }
+
+    private int qualityAt(long offset) {
+        return records.get(INT, offset + 40);
+    }
+
+    private static int dayOf(TimeLog log) {
+        return log.getDate() != null ? (int) log.getDate().toEpochDay() : NO_DATE;
+    }
+
+    // Lower bound: the first record whose resource is not less than the given one
+    int firstIndexOf(EntityId resourceId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareResource(mid, resourceId) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean isResource(int index, EntityId resourceId) {
+        return compareResource(index, resourceId) == 0;
+    }
+
+    // Same order as EntityId.compareTo
+    private int compareResource(int index, EntityId resourceId) {
+        long offset = (long) index * RECORD_SIZE;
+        int c = Long.compare(records.get(LONG, offset), resourceId.getHigh());
+        return c != 0 ? c : Long.compare(records.get(LONG, offset + 8), resourceId.getLow());
+    }
+}
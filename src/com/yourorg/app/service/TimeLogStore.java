@@ -0,0 +1,698 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: TimeLogStore.java
+// Description: Column-oriented storage for time logs. Each log is a row of primitive
+//              columns; TimeLog objects are only created when a caller asks for them.
+//              Logs older than a cutoff can be moved to an off-heap TimeLogArchive.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.model.PersistentList;
+import com.yourorg.app.model.TimeLog;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/*
+ * Per log (row):  long idHigh, long idLow   the log's EntityId
+ *                 int resource              ordinal into the resource ID dictionary
+ *                 int day                   epoch day, NO_DATE if the log has no date
+ *                 int duration              seconds
+ *                 byte quality              the review's answer, TimeLog.NO_QUALITY if unknown
+ * That is 29 bytes per log, plus 8 bytes for the per-resource and per-day position
+ * indexes, against roughly 100 bytes for a TimeLog object with its IDs and date.
+ *
+ * Columns grow in fixed-size chunks, so appending never copies existing rows. Rows
+ * visible to a snapshot are never overwritten: appends go past the end, and removing a resource's logs only marks its ordinal dead. The set of dead
+ * ordinals is replaced, not modified, so a snapshot keeps the one it was taken with.
+ * Once half of the rows are dead, the live ones are compacted into new chunks, which
+ * also drops the dead ordinals from the dictionary. Not thread-safe apart from
+ * snapshots, which may be read on another thread once published.
+ *
+ * Archived logs are not rows; queries combine them with the rows. The archive is
+ * immutable, so a snapshot simply keeps the version it was taken with. Removing a
+ * resource only hides its archived logs (see ArchivedLogs); the next checkpoint writes
+ * the archive version without them, off the lock.
+ */
+public class TimeLogStore {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // Rows per chunk
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /**
+     * Receives reviews (time logs) one by one without a TimeLog being created for each,
+     * e.g. to replay every resource's history.
+     */
+    public interface ReviewVisitor {
+        /**
+         * @param day The epoch day, or Integer.MIN_VALUE if the log has no date.
+         * @param quality The answer given, or TimeLog.NO_QUALITY if unknown.
+         */
+        void visit(EntityId resourceId, int day, int quality);
+    }
+
+    private long[][] idHigh = new long[0][];
+    private long[][] idLow = new long[0][];
+    private int[][] resource = new int[0][];
+    private int[][] day = new int[0][];
+    private int[][] duration = new int[0][];
+    private byte[][] quality = new byte[0][];
+    private int size;     // Rows, dead ones included
+    private int deadRows; // Rows whose resource ordinal is dead; dropped by the next compaction
+    private BitSet deadOrdinals = new BitSet(); // Shared with snapshots, so replaced instead of modified
+
+    // Resource ID dictionary; append-only between compactions, so snapshots can share it
+    private Map<EntityId, Integer> resourceOrdinals = new ConcurrentHashMap<>();
+    private PersistentList<EntityId> resourceIds = PersistentList.empty();
+
+    // Row positions per live resource ordinal, and per epoch day (dead rows included)
+    private final Map<Integer, IntList> rowsByResource = new HashMap<>();
+    private final NavigableMap<Integer, IntList> rowsByDay = new TreeMap<>();
+
+    private ArchivedLogs archived; // Null if this store has no archive
+
+    /**
+     * @return The number of logs, archived ones included.
+     */
+    public int size() {
+        return archivedSize() + size - deadRows;
+    }
+
+    public void attachArchive(TimeLogArchive archive) {
+        this.archived = new ArchivedLogs(archive, Collections.emptySet());
+    }
+
+    public void add(TimeLog log) {
+        int ordinal = ordinalOf(log.getResourceEntityId());
+        if (size == idHigh.length * CHUNK_SIZE) {
+            addChunk();
+        }
+        EntityId id = log.getEntityId();
+        int row = size;
+        int c = row >>> CHUNK_BITS;
+        int i = row & CHUNK_MASK;
+        idHigh[c][i] = id.getHigh();
+        idLow[c][i] = id.getLow();
+        resource[c][i] = ordinal;
+        day[c][i] = log.getDate() != null ? (int) log.getDate().toEpochDay() : NO_DATE;
+        duration[c][i] = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, log.getDurationSeconds()));
+        quality[c][i] = (byte) log.getQuality();
+        size++;
+        index(row);
+    }
+
+    /**
+     * Materializes one row, which may be dead. Each call creates a new TimeLog.
+     */
+    public TimeLog get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+        return materialize(idHigh, idLow, resource, day, duration, quality, resourceIds, row);
+    }
+
+    public List<TimeLog> getForResource(EntityId resourceId) {
+        Integer ordinal = resourceOrdinals.get(resourceId);
+        IntList rows = ordinal != null ? rowsByResource.get(ordinal) : null;
+        if (archivedSize() == 0) {
+            return materialize(rows);
+        }
+        List<TimeLog> logs = archived.getForResource(resourceId);
+        logs.addAll(materialize(rows));
+        return logs;
+    }
+
+    /**
+     * @return The logs dated between from and to (both inclusive), in date order.
+     */
+    public List<TimeLog> getBetween(LocalDate from, LocalDate to) {
+        List<TimeLog> result = new ArrayList<>();
+        if (from.isAfter(to)) return result;
+        if (archivedSize() > 0) {
+            result.addAll(archived.getBetween(from, to));
+        }
+        boolean merge = !result.isEmpty();
+        for (IntList rows : rowsByDay.subMap((int) from.toEpochDay(), true, (int) to.toEpochDay(), true).values()) {
+            result.addAll(materialize(rows));
+        }
+        if (merge) { // Archived logs are usually older, but need not be
+            result.sort(Comparator.comparing(TimeLog::getDate));
+        }
+        return result;
+    }
+
+    /**
+     * @return The most recent log date, or null if there are no dated logs.
+     */
+    public LocalDate getLastDate() {
+        LocalDate last = null;
+        for (Map.Entry<Integer, IntList> entry : rowsByDay.descendingMap().entrySet()) {
+            if (hasLiveRow(entry.getValue())) {
+                last = LocalDate.ofEpochDay(entry.getKey());
+                break;
+            }
+        }
+        LocalDate lastArchived = archived != null ? archived.getLastDate() : null;
+        return last == null || (lastArchived != null && lastArchived.isAfter(last)) ? lastArchived : last;
+    }
+
+    /**
+     * @return Whether the log is in the archive (it is then not among the rows).
+     */
+    public boolean isArchived(TimeLog log) {
+        return archivedSize() > 0 && archived.contains(log.getResourceEntityId(), log.getEntityId());
+    }
+
+    /**
+     * @return The IDs of all logs that are not archived.
+     */
+    public Set<EntityId> ids() {
+        Set<EntityId> ids = new HashSet<>((size - deadRows) * 2);
+        for (int row = 0; row < size; row++) {
+            if (isDead(row)) continue;
+            ids.add(new EntityId(idHigh[row >>> CHUNK_BITS][row & CHUNK_MASK], idLow[row >>> CHUNK_BITS][row & CHUNK_MASK]));
+        }
+        return ids;
+    }
+
+    /**
+     * Removes all logs of the given resources: their rows are marked dead and their
+     * archived logs hidden, in time proportional to the number of resources; both are
+     * dropped for good later. Resources without logs cost nothing.
+     * @return The number of logs removed.
+     */
+    public int removeResources(Collection<EntityId> resourceIdsToRemove) {
+        BitSet dead = null;
+        int removed = 0;
+        for (EntityId resourceId : resourceIdsToRemove) {
+            Integer ordinal = resourceOrdinals.get(resourceId);
+            IntList rows = ordinal != null ? rowsByResource.remove(ordinal) : null;
+            if (rows != null) {
+                if (dead == null) {
+                    dead = (BitSet) deadOrdinals.clone();
+                }
+                dead.set(ordinal);
+                removed += rows.size;
+            }
+        }
+        if (dead != null) {
+            deadOrdinals = dead;
+            deadRows += removed;
+        }
+        if (archivedSize() > 0) {
+            ArchivedLogs remaining = archived.without(resourceIdsToRemove);
+            removed += archived.size() - remaining.size();
+            archived = remaining;
+        }
+        if (deadRows > 0 && deadRows * 2 >= size) {
+            compact(row -> false); // Amortized over the removals since the last compaction
+        }
+        return removed;
+    }
+
+    /**
+     * Moves the logs dated before the cutoff into a new version of the archive, so they
+     * no longer take heap space. Logs without a date stay rows.
+     * @return The number of logs archived.
+     */
+    public int archiveOlderThan(LocalDate cutoff) throws IOException {
+        if (archived == null) {
+            throw new IllegalStateException("No archive attached");
+        }
+        SortedMap<Integer, IntList> oldDays = rowsByDay.headMap((int) cutoff.toEpochDay());
+        List<TimeLog> old = new ArrayList<>();
+        for (IntList rows : oldDays.values()) {
+            old.addAll(materialize(rows));
+        }
+        if (old.isEmpty()) {
+            return 0;
+        }
+        // Also drops the logs of resources removed meanwhile
+        archived = new ArchivedLogs(archived.archive.rewrite(old, archived.removed), Collections.emptySet());
+        int cutoffDay = (int) cutoff.toEpochDay();
+        int[][] dayColumn = day;
+        compact(row -> {
+            int d = dayColumn[row >>> CHUNK_BITS][row & CHUNK_MASK];
+            return d != NO_DATE && d < cutoffDay;
+        });
+        return old.size();
+    }
+
+    /**
+     * @return An immutable list view of all logs, archived ones first, materializing a
+     *         TimeLog per get(). O(1) to take; later changes to the store are not visible
+     *         through it.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(archived, new Rows(idHigh, idLow, resource, day, duration, quality, resourceIds,
+                resourceOrdinals, deadOrdinals, size, deadRows));
+    }
+
+    // --- Internals ---
+
+    private int archivedSize() {
+        return archived != null ? archived.size() : 0;
+    }
+
+    // Copies the live rows that are kept into new chunks with a new resource dictionary
+    // that has only their resources, and rebuilds the row indexes
+    private void compact(IntPredicate removeRow) {
+        long[][] oldHigh = idHigh, oldLow = idLow;
+        int[][] oldResource = resource, oldDay = day, oldDuration = duration;
+        byte[][] oldQuality = quality;
+        int oldSize = size;
+        List<EntityId> oldResourceIds = resourceIds;
+        BitSet oldDead = deadOrdinals;
+        idHigh = new long[0][];
+        idLow = new long[0][];
+        resource = new int[0][];
+        day = new int[0][];
+        duration = new int[0][];
+        quality = new byte[0][];
+        size = 0;
+        deadRows = 0;
+        deadOrdinals = new BitSet();
+        resourceOrdinals = new ConcurrentHashMap<>(); // New instances: snapshots keep the old ones
+        resourceIds = PersistentList.empty();
+        rowsByResource.clear();
+        rowsByDay.clear();
+        for (int row = 0; row < oldSize; row++) {
+            int c = row >>> CHUNK_BITS;
+            int i = row & CHUNK_MASK;
+            if (oldDead.get(oldResource[c][i]) || removeRow.test(row)) continue;
+            if (size == idHigh.length * CHUNK_SIZE) {
+                addChunk();
+            }
+            int newRow = size++;
+            int nc = newRow >>> CHUNK_BITS;
+            int ni = newRow & CHUNK_MASK;
+            idHigh[nc][ni] = oldHigh[c][i];
+            idLow[nc][ni] = oldLow[c][i];
+            resource[nc][ni] = ordinalOf(oldResourceIds.get(oldResource[c][i]));
+            day[nc][ni] = oldDay[c][i];
+            duration[nc][ni] = oldDuration[c][i];
+            quality[nc][ni] = oldQuality[c][i];
+            index(newRow);
+        }
+    }
+
+    private void addChunk() {
+        int chunks = idHigh.length;
+        // The outer arrays are copied, so snapshots keep seeing their own chunk lists
+        idHigh = Arrays.copyOf(idHigh, chunks + 1);
+        idLow = Arrays.copyOf(idLow, chunks + 1);
+        resource = Arrays.copyOf(resource, chunks + 1);
+        day = Arrays.copyOf(day, chunks + 1);
+        duration = Arrays.copyOf(duration, chunks + 1);
+        quality = Arrays.copyOf(quality, chunks + 1);
+        idHigh[chunks] = new long[CHUNK_SIZE];
+        idLow[chunks] = new long[CHUNK_SIZE];
+        resource[chunks] = new int[CHUNK_SIZE];
+        day[chunks] = new int[CHUNK_SIZE];
+        duration[chunks] = new int[CHUNK_SIZE];
+        quality[chunks] = new byte[CHUNK_SIZE];
+    }
+
+    private void index(int row) {
+        int c = row >>> CHUNK_BITS;
+        int i = row & CHUNK_MASK;
+        rowsByResource.computeIfAbsent(resource[c][i], r -> new IntList()).add(row);
+        if (day[c][i] != NO_DATE) {
+            rowsByDay.computeIfAbsent(day[c][i], d -> new IntList()).add(row);
+        }
+    }
+
+    private boolean isDead(int row) {
+        return deadRows > 0 && deadOrdinals.get(resource[row >>> CHUNK_BITS][row & CHUNK_MASK]);
+    }
+
+    private boolean hasLiveRow(IntList rows) {
+        for (int k = 0; k < rows.size; k++) {
+            if (!isDead(rows.values[k])) return true;
+        }
+        return false;
+    }
+
+    private int ordinalOf(EntityId resourceId) {
+        Integer ordinal = resourceOrdinals.get(resourceId);
+        if (ordinal != null && deadOrdinals.get(ordinal)) {
+            // Logs for a removed resource again (e.g. replaying a journal); its dead rows must go first
+            compact(row -> false);
+            ordinal = null;
+        }
+        if (ordinal == null) {
+            ordinal = resourceIds.size();
+            resourceIds = resourceIds.plus(resourceId);
+            resourceOrdinals.put(resourceId, ordinal);
+        }
+        return ordinal;
+    }
+
+    private List<TimeLog> materialize(IntList rows) {
+        List<TimeLog> logs = new ArrayList<>(rows != null ? rows.size : 0);
+        if (rows != null) {
+            for (int k = 0; k < rows.size; k++) {
+                if (!isDead(rows.values[k])) {
+                    logs.add(get(rows.values[k]));
+                }
+            }
+        }
+        return logs;
+    }
+
+    private static TimeLog materialize(long[][] idHigh, long[][] idLow, int[][] resource, int[][] day,
+                                       int[][] duration, byte[][] quality, List<EntityId> resourceIds, int row) {
+        int c = row >>> CHUNK_BITS;
+        int i = row & CHUNK_MASK;
+        return new TimeLog(new EntityId(idHigh[c][i], idLow[c][i]), resourceIds.get(resource[c][i]),
+                duration[c][i], day[c][i] != NO_DATE ? LocalDate.ofEpochDay(day[c][i]) : null, quality[c][i]);
+    }
+
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * All logs as of one moment: the archive version of that moment followed by the rows.
+     */
+    public static final class Snapshot extends AbstractList<TimeLog> implements RandomAccess {
+        private final ArchivedLogs archived; // Null if the store had no archive
+        private final List<TimeLog> recent;
+
+        Snapshot(ArchivedLogs archived, List<TimeLog> recent) {
+            this.archived = archived;
+            this.recent = recent;
+        }
+
+        /**
+         * @return The archive version of this snapshot, or null if the store had none. May
+         *         still hold logs of removed resources, see getRemovedFromArchive().
+         */
+        public TimeLogArchive getArchive() {
+            return archived != null ? archived.archive : null;
+        }
+
+        /**
+         * @return The resources whose logs are in getArchive() but have been removed since;
+         *         unmodifiable. Writing an archive version without them is up to the caller.
+         */
+        public Set<EntityId> getRemovedFromArchive() {
+            return archived != null ? archived.removed : Collections.emptySet();
+        }
+
+        /**
+         * @return The logs that are not archived.
+         */
+        public List<TimeLog> getRecent() {
+            return recent;
+        }
+
+        /**
+         * @return The logs of one resource as of this snapshot. The first such query
+         *         indexes the snapshot's rows by resource; later ones only read that index.
+         */
+        public List<TimeLog> getForResource(EntityId resourceId) {
+            List<TimeLog> logs = archived != null ? archived.getForResource(resourceId) : new ArrayList<>();
+            if (recent instanceof Rows) {
+                logs.addAll(((Rows) recent).forResource(resourceId));
+            } else {
+                for (TimeLog log : recent) {
+                    if (log.getResourceEntityId().equals(resourceId)) {
+                        logs.add(log);
+                    }
+                }
+            }
+            return logs;
+        }
+
+        /**
+         * Passes every review of this snapshot to the visitor, archived ones first. Creates
+         * no TimeLog objects, so it suits jobs that go through the whole history.
+         */
+        public void forEachReview(ReviewVisitor visitor) {
+            if (archived != null) {
+                archived.forEachReview(visitor);
+            }
+            if (recent instanceof Rows) {
+                ((Rows) recent).forEachReview(visitor);
+            } else {
+                for (TimeLog log : recent) {
+                    visitor.visit(log.getResourceEntityId(),
+                            log.getDate() != null ? (int) log.getDate().toEpochDay() : NO_DATE, log.getQuality());
+                }
+            }
+        }
+
+        @Override
+        public TimeLog get(int index) {
+            int archivedSize = archived != null ? archived.size() : 0;
+            return index < archivedSize ? archived.get(index) : recent.get(index - archivedSize);
+        }
+
+        @Override
+        public int size() {
+            return (archived != null ? archived.size() : 0) + recent.size();
+        }
+    }
+
+    /**
+     * One archive version without the logs of the resources removed since it was written,
+     * which are hidden instead of rewriting the whole file while the data is locked.
+     * Immutable; removing more resources makes a new one.
+     */
+    private static final class ArchivedLogs {
+        final TimeLogArchive archive;
+        final Set<EntityId> removed; // Unmodifiable; only resources that have archived logs
+        private final int size;
+
+        // The hidden records as index ranges, in file order: after the j-th range, the
+        // visible index i is at file index i + skips[j]; firstVisible[j] is the visible
+        // index where that starts
+        private final int[] firstVisible;
+        private final int[] skips;
+
+        private volatile LocalDate lastDate; // Computed on first use when logs are hidden
+        private volatile boolean lastDateKnown;
+
+        ArchivedLogs(TimeLogArchive archive, Set<EntityId> removed) {
+            this.archive = archive;
+            this.removed = removed;
+            int[][] ranges = new int[removed.size()][];
+            int k = 0;
+            for (EntityId resourceId : removed) {
+                ranges[k++] = new int[]{archive.firstIndexOf(resourceId),
+                        archive.countForResources(Collections.singleton(resourceId))};
+            }
+            Arrays.sort(ranges, Comparator.comparingInt(range -> range[0]));
+            firstVisible = new int[ranges.length];
+            skips = new int[ranges.length];
+            int hidden = 0;
+            for (int j = 0; j < ranges.length; j++) {
+                firstVisible[j] = ranges[j][0] - hidden;
+                hidden += ranges[j][1];
+                skips[j] = hidden;
+            }
+            size = archive.size() - hidden;
+        }
+
+        /**
+         * @return These logs without those of the given resources as well; this if none
+         *         of them has archived logs.
+         */
+        ArchivedLogs without(Collection<EntityId> resourceIds) {
+            Set<EntityId> more = null;
+            for (EntityId resourceId : resourceIds) {
+                if (!removed.contains(resourceId) && archive.countForResources(Collections.singleton(resourceId)) > 0) {
+                    if (more == null) {
+                        more = new HashSet<>(removed);
+                    }
+                    more.add(resourceId);
+                }
+            }
+            return more != null ? new ArchivedLogs(archive, Collections.unmodifiableSet(more)) : this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        TimeLog get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            // The last hidden range that starts at or before the index
+            int low = 0;
+            int high = firstVisible.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (firstVisible[mid] <= index) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return archive.get(low > 0 ? index + skips[low - 1] : index);
+        }
+
+        List<TimeLog> getForResource(EntityId resourceId) {
+            return removed.contains(resourceId) ? new ArrayList<>() : archive.getForResource(resourceId);
+        }
+
+        List<TimeLog> getBetween(LocalDate from, LocalDate to) {
+            List<TimeLog> logs = archive.getBetween(from, to);
+            if (!removed.isEmpty()) {
+                logs.removeIf(log -> removed.contains(log.getResourceEntityId()));
+            }
+            return logs;
+        }
+
+        boolean contains(EntityId resourceId, EntityId id) {
+            return !removed.contains(resourceId) && archive.contains(resourceId, id);
+        }
+
+        LocalDate getLastDate() {
+            if (removed.isEmpty()) {
+                return archive.getLastDate();
+            }
+            if (!lastDateKnown) {
+                int[] maxDay = {NO_DATE};
+                forEachReview((resourceId, day, quality) -> maxDay[0] = Math.max(maxDay[0], day));
+                lastDate = maxDay[0] != NO_DATE ? LocalDate.ofEpochDay(maxDay[0]) : null;
+                lastDateKnown = true;
+            }
+            return lastDate;
+        }
+
+        void forEachReview(ReviewVisitor visitor) {
+            if (removed.isEmpty()) {
+                archive.forEachReview(visitor);
+                return;
+            }
+            archive.forEachReview((resourceId, day, quality) -> {
+                if (!removed.contains(resourceId)) {
+                    visitor.visit(resourceId, day, quality);
+                }
+            });
+        }
+    }
+
+    private static class Rows extends AbstractList<TimeLog> implements RandomAccess {
+        private final long[][] idHigh, idLow;
+        private final int[][] resource, day, duration;
+        private final byte[][] quality;
+        private final List<EntityId> resourceIds;
+        private final Map<EntityId, Integer> resourceOrdinals; // Also has ordinals added after this snapshot
+        private final BitSet deadOrdinals;
+        private final int rowCount; // Dead rows included
+        private final int size;
+
+        // Built on first use, as most snapshots are never queried this way
+        private volatile int[] liveRows;         // Row of each index; only needed when rows are dead
+        private volatile int[][] rowsByOrdinal;  // Rows of each resource ordinal
+
+        Rows(long[][] idHigh, long[][] idLow, int[][] resource, int[][] day, int[][] duration, byte[][] quality,
+             List<EntityId> resourceIds, Map<EntityId, Integer> resourceOrdinals, BitSet deadOrdinals,
+             int rowCount, int deadRows) {
+            this.idHigh = idHigh;
+            this.idLow = idLow;
+            this.resource = resource;
+            this.day = day;
+            this.duration = duration;
+            this.quality = quality;
+            this.resourceIds = resourceIds;
+            this.resourceOrdinals = resourceOrdinals;
+            this.deadOrdinals = deadOrdinals;
+            this.rowCount = rowCount;
+            this.size = rowCount - deadRows;
+        }
+
+        @Override
+        public TimeLog get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return materialize(idHigh, idLow, resource, day, duration, quality, resourceIds, rowOf(index));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        void forEachReview(ReviewVisitor visitor) {
+            for (int row = 0; row < rowCount; row++) {
+                int c = row >>> CHUNK_BITS;
+                int i = row & CHUNK_MASK;
+                if (!deadOrdinals.get(resource[c][i])) {
+                    visitor.visit(resourceIds.get(resource[c][i]), day[c][i], quality[c][i]);
+                }
+            }
+        }
+
+        List<TimeLog> forResource(EntityId resourceId) {
+            List<TimeLog> logs = new ArrayList<>();
+            Integer ordinal = resourceOrdinals.get(resourceId);
+            if (ordinal == null || ordinal >= resourceIds.size() || deadOrdinals.get(ordinal)) {
+                return logs; // Unknown to this snapshot, or removed
+            }
+            int[] rows = rowsByOrdinal()[ordinal];
+            for (int row : rows) {
+                logs.add(materialize(idHigh, idLow, resource, day, duration, quality, resourceIds, row));
+            }
+            return logs;
+        }
+
+        private int rowOf(int index) {
+            if (size == rowCount) {
+                return index;
+            }
+            int[] rows = liveRows;
+            if (rows == null) {
+                rows = new int[size];
+                int k = 0;
+                for (int row = 0; row < rowCount; row++) {
+                    if (!deadOrdinals.get(resource[row >>> CHUNK_BITS][row & CHUNK_MASK])) {
+                        rows[k++] = row;
+                    }
+                }
+                liveRows = rows; // Racing threads build equal arrays
+            }
+            return rows[index];
+        }
+
+        private int[][] rowsByOrdinal() {
+            int[][] index = rowsByOrdinal;
+            if (index == null) {
+                int[] counts = new int[resourceIds.size()];
+                for (int row = 0; row < rowCount; row++) {
+                    counts[resource[row >>> CHUNK_BITS][row & CHUNK_MASK]]++;
+                }
+                index = new int[counts.length][];
+                for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+                    index[ordinal] = new int[counts[ordinal]];
+                    counts[ordinal] = 0;
+                }
+                for (int row = 0; row < rowCount; row++) {
+                    int ordinal = resource[row >>> CHUNK_BITS][row & CHUNK_MASK];
+                    index[ordinal][counts[ordinal]++] = row;
+                }
+                rowsByOrdinal = index; // Racing threads build equal arrays
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: TitleCompletionIndex.java
+// Description: Prefix and typo-tolerant completion over course names and resource
+//              titles, e.g. "lin alg" or "linaer alg" -> "Linear Algebra Lecture 3".
+// ====================================================================================
+package com.yourorg.app.service;
+
+import java.util.*;
+
+/**
+ * Every distinct title word is stored once, in a sorted map (which serves as the trie:
+ * all words with a given prefix form one sub map) and under each of its trigrams. A query
+ * word matches a title word if it is a prefix of it, or - for words of four letters or
+ * more - if it is within one or two edits of one of its prefixes. Trigrams narrow the
+ * fuzzy candidates down before edit distances are computed.
+ *
+ * Not thread-safe; SearchIndex owns it and synchronizes all access.
+ */
+public class TitleCompletionIndex {
+
+    // Bounds on the work done per query word, so latency does not grow with the data
+    private static final int MAX_PREFIX_WORDS = 2000;
+    private static final int MAX_FUZZY_CANDIDATES = 500;
+    private static final int MAX_CANDIDATE_TITLES = 5000;
+
+    private static final int PREFIX_SCORE = 3;
+    private static final int EXACT_SCORE = 4;
+    private static final int FUZZY_SCORE = 1;
+
+    private static class Entry {
+        final SearchIndex.Kind kind;
+        final String id;
+        final String title;
+        final Set<String> words;
+
+        Entry(SearchIndex.Kind kind, String id, String title, Set<String> words) {
+            this.kind = kind;
+            this.id = id;
+            this.title = title;
+            this.words = words;
+        }
+    }
+
+    private final NavigableMap<String, Set<Entry>> entriesByWord = new TreeMap<>();
+    private final Map<String, Set<String>> wordsByTrigram = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public void clear() {
+        entriesByWord.clear();
+        wordsByTrigram.clear();
+        entries.clear();
+    }
+
+    public void put(String key, SearchIndex.Kind kind, String id, String title) {
+        remove(key);
+        Entry entry = new Entry(kind, id, title, new HashSet<>(SearchIndex.tokenize(title)));
+        entries.put(key, entry);
+        for (String word : entry.words) {
+            Set<Entry> containing = entriesByWord.get(word);
+            if (containing == null) {
+                containing = new HashSet<>();
+                entriesByWord.put(word, containing);
+                for (String trigram : trigrams(word)) {
+                    wordsByTrigram.computeIfAbsent(trigram, t -> new HashSet<>()).add(word);
+                }
+            }
+            containing.add(entry);
+        }
+    }
+
+    public void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) return;
+        for (String word : entry.words) {
+            Set<Entry> containing = entriesByWord.get(word);
+            containing.remove(entry);
+            if (containing.isEmpty()) { // Last title using this word
+                entriesByWord.remove(word);
+                for (String trigram : trigrams(word)) {
+                    Set<String> words = wordsByTrigram.get(trigram);
+                    words.remove(word);
+                    if (words.isEmpty()) {
+                        wordsByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Up to 'limit' titles matching every word of the query, best first: exact
+     *         and prefix matches before fuzzy ones, then shorter titles.
+     */
+    public List<SearchIndex.Result> complete(String query, int limit) {
+        List<String> queryWords = new ArrayList<>(new LinkedHashSet<>(SearchIndex.tokenize(query)));
+        if (queryWords.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Match every query word against the title words, then take candidate titles
+        // from the most selective query word only
+        List<Map<String, Integer>> matches = new ArrayList<>();
+        for (String queryWord : queryWords) {
+            Map<String, Integer> matchingWords = matchWords(queryWord);
+            if (matchingWords.isEmpty()) {
+                return new ArrayList<>();
+            }
+            matches.add(matchingWords);
+        }
+        matches.sort(Comparator.comparingLong(this::countEntries));
+
+        Map<Entry, Integer> scores = new HashMap<>();
+        List<Map.Entry<String, Integer>> firstWords = new ArrayList<>(matches.get(0).entrySet());
+        firstWords.sort(Map.Entry.<String, Integer>comparingByValue().reversed()); // Best matches first, then cut off
+        candidates:
+        for (Map.Entry<String, Integer> match : firstWords) {
+            for (Entry entry : entriesByWord.get(match.getKey())) {
+                scores.merge(entry, match.getValue(), Math::max);
+                if (scores.size() >= MAX_CANDIDATE_TITLES) break candidates;
+            }
+        }
+        for (Map<String, Integer> matchingWords : matches.subList(1, matches.size())) {
+            Iterator<Map.Entry<Entry, Integer>> it = scores.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Entry, Integer> candidate = it.next();
+                int best = 0;
+                for (String word : candidate.getKey().words) {
+                    best = Math.max(best, matchingWords.getOrDefault(word, 0));
+                }
+                if (best == 0) {
+                    it.remove();
+                } else {
+                    candidate.setValue(candidate.getValue() + best);
+                }
+            }
+        }
+
+        List<Map.Entry<Entry, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Comparator.<Map.Entry<Entry, Integer>>comparingInt(Map.Entry::getValue).reversed()
+                .thenComparingInt(e -> e.getKey().title.length())
+                .thenComparing(e -> e.getKey().title, String.CASE_INSENSITIVE_ORDER));
+        List<SearchIndex.Result> results = new ArrayList<>();
+        for (Map.Entry<Entry, Integer> e : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            Entry entry = e.getKey();
+            results.add(new SearchIndex.Result(entry.kind, entry.id, entry.title, e.getValue()));
+        }
+        return results;
+    }
+
+    private long countEntries(Map<String, Integer> words) {
+        long count = 0;
+        for (String word : words.keySet()) {
+            count += entriesByWord.get(word).size();
+        }
+        return count;
+    }
+
+    /**
+     * @return Title words matched by the query word, with the score of the match.
+     */
+    private Map<String, Integer> matchWords(String queryWord) {
+        Map<String, Integer> matches = new HashMap<>();
+        int examined = 0;
+        for (String word : entriesByWord.subMap(queryWord, true, queryWord + Character.MAX_VALUE, true).keySet()) {
+            matches.put(word, word.length() == queryWord.length() ? EXACT_SCORE : PREFIX_SCORE);
+            if (++examined >= MAX_PREFIX_WORDS) break;
+        }
+
+        int maxEdits = maxEdits(queryWord);
+        if (maxEdits == 0) {
+            return matches;
+        }
+        // A word within k edits shares all but at most 3k of the query word's trigrams
+        List<String> queryTrigrams = trigrams(queryWord);
+        int required = Math.max(1, queryTrigrams.size() - 3 * maxEdits);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<String> words = wordsByTrigram.get(trigram);
+            if (words == null) continue;
+            for (String word : words) {
+                shared.merge(word, 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : shared.entrySet()) {
+            if (e.getValue() >= required && !matches.containsKey(e.getKey())) {
+                candidates.add(e);
+            }
+        }
+        if (candidates.size() > MAX_FUZZY_CANDIDATES) { // Keep the most similar ones
+            candidates.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            candidates = candidates.subList(0, MAX_FUZZY_CANDIDATES);
+        }
+        for (Map.Entry<String, Integer> candidate : candidates) {
+            if (prefixEditDistance(queryWord, candidate.getKey(), maxEdits) <= maxEdits) {
+                matches.put(candidate.getKey(), FUZZY_SCORE);
+            }
+        }
+        return matches;
+    }
+
+    private static int maxEdits(String word) {
+        if (word.length() < 4) return 0;
+        return word.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * Trigrams of the word, padded at the start so that the first letters count too.
+     * No end padding: the query word may be an unfinished prefix.
+     */
+    private static List<String> trigrams(String word) {
+        String padded = "$$" + word;
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * @return The smallest edit distance (Damerau-Levenshtein, adjacent transpositions)
+     *         between the query and any prefix of the word, or maxEdits + 1 if larger.
+     */
+    static int prefixEditDistance(String query, String word, int maxEdits) {
+        int m = query.length();
+        int n = Math.min(word.length(), m + maxEdits);
+        int[] previous2 = new int[n + 1];
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) previous[j] = j;
+        for (int i = 1; i <= m; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= n; j++) {
+                int cost = query.charAt(i - 1) == word.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(i - 1) == word.charAt(j - 2) && query.charAt(i - 2) == word.charAt(j - 1)) {
+                    d = Math.min(d, previous2[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1; // Every alignment already needs too many edits
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int j = 0; j <= n; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return Math.min(best, maxEdits + 1);
+    }
+}
@@ -0,0 +1,338 @@
+// ====================================================================================
+// Package: com.yourorg.app.service
+// File: DataManagerStressTest.java
+// Description: Multithreaded stress test for DataManager's locking. Readers query the
+//              data while the EDT, the writer thread and bulk rescheduling change it;
+//              afterwards the indexes must agree with the course lists.
+// ====================================================================================
+package com.yourorg.app.service;
+
+import com.yourorg.app.model.Course;
+import com.yourorg.app.model.EntityId;
+import com.yourorg.app.model.Resource;
+
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A plain main program, as the project has no test framework:
+ * <pre>
+ *   java -cp out com.yourorg.app.service.DataManagerStressTest [seconds]
+ * </pre>
+ * Run it from an empty directory, as DataManager keeps its files in the working
+ * directory; it refuses to run where there is data already. Exits with status 1 and
+ * prints the problems if any invariant was broken or any thread saw an exception
+ * (e.g. a ConcurrentModificationException).
+ */
+public class DataManagerStressTest {
+
+    private static final int READERS = 6;
+    private static final int INITIAL_RESOURCES = 500;
+
+    private final DataManager dataManager;
+    private final String courseId;
+    private final List<String> resourceIds = new CopyOnWriteArrayList<>(); // Added and not yet deleted
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicInteger reschedules = new AtomicInteger();
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+    private DataManagerStressTest() {
+        dataManager = new DataManager(50, 0);
+        Course course = new Course("Stress test", "Created by DataManagerStressTest");
+        dataManager.addCourse(course);
+        courseId = course.getId();
+        for (int i = 0; i < INITIAL_RESOURCES; i++) {
+            addResource("seed " + i);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (new File("app_data").exists() || new File("app_data.journal").exists()) {
+            System.err.println("Refusing to run: there is data in " + new File("").getAbsolutePath());
+            System.exit(2);
+        }
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 10;
+        DataManagerStressTest test = new DataManagerStressTest();
+        boolean passed = test.run(TimeUnit.SECONDS.toMillis(seconds));
+        System.exit(passed ? 0 : 1);
+    }
+
+    private boolean run(long millis) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            threads.add(new Thread(this::readLoop, "reader-" + i));
+        }
+        threads.add(new Thread(this::edtLoop, "edt-driver"));
+        threads.add(new Thread(this::queueLoop, "queue-driver"));
+        threads.add(new Thread(this::rescheduleLoop, "rescheduler"));
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((t, e) -> fail(t.getName() + " died", e));
+            thread.start();
+        }
+        Thread.sleep(millis);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+            if (thread.isAlive()) {
+                fail(thread.getName() + " did not finish (deadlock?)", null);
+            }
+        }
+
+        checkIndexes();
+        dataManager.deleteCourse(courseId);
+        dataManager.shutdown();
+
+        System.out.println("reads=" + reads + " writes=" + writes + " reschedules=" + reschedules
+                + " resources=" + resourceIds.size() + " failures=" + failures.size());
+        for (String failure : failures.subList(0, Math.min(20, failures.size()))) {
+            System.err.println(failure);
+        }
+        return failures.isEmpty();
+    }
+
+    // --- Readers: every query a view or background job makes ---
+
+    private void readLoop() {
+        Random random = new Random();
+        LocalDate today = LocalDate.now();
+        while (!stop.get()) {
+            try {
+                String id = randomResourceId(random);
+                if (id != null) {
+                    Resource resource = dataManager.getResourceById(id); // Optimistic, unlocked lookup
+                    if (resource != null && !resource.getId().equals(id)) {
+                        fail("getResourceById(" + id + ") returned " + resource.getId(), null);
+                    }
+                    Course course = dataManager.getCourseForResource(resource);
+                    if (course != null && !course.getId().equals(courseId)) {
+                        fail("Resource " + id + " is in unknown course " + course.getId(), null);
+                    }
+                }
+
+                checkDueList(dataManager.getDueResources(today));
+                checkDueList(dataManager.getDueResources(today, 10));
+                if (dataManager.getDueResourceCount() < 0) {
+                    fail("Negative due count", null);
+                }
+
+                Set<EntityId> seen = new HashSet<>();
+                for (Resource resource : dataManager.getResourcesForCourse(courseId)) {
+                    if (!seen.add(resource.getEntityId())) {
+                        fail("Resource " + resource.getId() + " listed twice", null);
+                    }
+                }
+                dataManager.getAllResources().size();
+                checkSnapshot(dataManager.getSnapshot());
+                reads.incrementAndGet();
+            } catch (RuntimeException e) {
+                fail("Reader failed", e);
+            }
+        }
+    }
+
+    // The listed resources are live objects that may have been reviewed since, so only
+    // duplicates are certain errors here; the order is checked by checkIndexes()
+    private void checkDueList(List<Resource> due) {
+        Set<EntityId> seen = new HashSet<>();
+        for (Resource resource : due) {
+            if (!seen.add(resource.getEntityId())) {
+                fail("Resource " + resource.getId() + " listed twice as due", null);
+            }
+        }
+    }
+
+    private void checkSnapshot(DataSnapshot snapshot) {
+        for (Course course : snapshot.getCourses()) {
+            if (snapshot.getCourse(course.getEntityId()) != course) {
+                fail("Snapshot " + snapshot.getVersion() + " does not index course " + course.getId(), null);
+            }
+            for (Resource resource : course.getResources()) {
+                try {
+                    resource.setTitle("changed");
+                    fail("Snapshot copy of resource " + resource.getId() + " could be changed", null);
+                } catch (UnsupportedOperationException expected) {
+                    // Frozen, as it should be
+                }
+                break; // One per course is enough
+            }
+        }
+    }
+
+    // --- Writers ---
+
+    // Direct mutations on the EDT, as the views make them
+    private void edtLoop() {
+        Random random = new Random();
+        while (!stop.get()) {
+            try {
+                SwingUtilities.invokeAndWait(() -> {
+                    int action = random.nextInt(4);
+                    String id = randomResourceId(random);
+                    if (action == 0 || id == null) {
+                        addResource("edt " + random.nextInt(1000));
+                    } else if (action == 1) {
+                        dataManager.markResourceAsReviewed(id, random.nextInt(6));
+                    } else if (action == 2) {
+                        Resource resource = dataManager.getResourceById(id);
+                        if (resource != null) {
+                            Resource edited = new Resource(resource);
+                            edited.setTitle("edited " + random.nextInt(1000));
+                            edited.setNextReviewDate(LocalDate.now().plusDays(random.nextInt(5) - 2));
+                            dataManager.updateResource(edited);
+                        }
+                    } else if (resourceIds.size() > INITIAL_RESOURCES / 2 && resourceIds.remove(id)) {
+                        dataManager.deleteResource(id);
+                    }
+                    writes.incrementAndGet();
+                });
+            } catch (InterruptedException e) {
+                return;
+            } catch (InvocationTargetException e) {
+                fail("EDT mutation failed", e.getCause());
+            }
+        }
+    }
+
+    // Queued mutations, applied on DataManager's writer thread (as buffered review grades are)
+    private void queueLoop() {
+        Random random = new Random();
+        while (!stop.get()) {
+            List<DataManager.ReviewGrade> grades = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String id = randomResourceId(random);
+                if (id != null) {
+                    grades.add(new DataManager.ReviewGrade(id, random.nextInt(6), 30));
+                }
+            }
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            futures.add(dataManager.markResourcesAsReviewedAsync(grades));
+            Resource resource = new Resource("queued " + random.nextInt(1000), "", Resource.ResourceType.NOTE, "");
+            futures.add(dataManager.addResourceToCourseAsync(courseId, resource)
+                    .thenAccept(added -> resourceIds.add(resource.getId())));
+            String id = randomResourceId(random);
+            if (id != null && resourceIds.size() > INITIAL_RESOURCES / 2 && resourceIds.remove(id)) {
+                futures.add(dataManager.deleteResourceAsync(id));
+            }
+            for (CompletableFuture<?> future : futures) {
+                try {
+                    future.get(30, TimeUnit.SECONDS);
+                    writes.incrementAndGet();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (ExecutionException | TimeoutException e) {
+                    fail("Queued mutation failed", e.getCause() != null ? e.getCause() : e);
+                }
+            }
+        }
+    }
+
+    // Bulk rescheduling, as the settings dialog's SwingWorker does it
+    private void rescheduleLoop() {
+        SrsScheduler[] schedulers = {new Sm2Scheduler(), new Sm2Scheduler(1.3, 2, 8, 1), new FsrsScheduler()};
+        int next = 0;
+        while (!stop.get()) {
+            try {
+                dataManager.setScheduler(schedulers[next++ % schedulers.length]);
+                Rescheduler.Result result = dataManager.rescheduleAll(null);
+                if (result.rescheduled + result.skipped > result.total) {
+                    fail("Inconsistent reschedule result", null);
+                }
+                reschedules.incrementAndGet();
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                fail("Rescheduling failed", e);
+            }
+        }
+        dataManager.setScheduler(new Sm2Scheduler()); // Leave the default settings behind
+    }
+
+    // --- Invariants, checked once everything has stopped ---
+
+    private void checkIndexes() {
+        List<Resource> listed = dataManager.getResourcesForCourse(courseId);
+        Set<String> expected = new HashSet<>(resourceIds);
+        Set<String> actual = new HashSet<>();
+        for (Resource resource : listed) {
+            actual.add(resource.getId());
+            if (dataManager.getResourceById(resource.getId()) != resource) {
+                fail("Resource " + resource.getId() + " is listed but not indexed", null);
+            }
+            Course course = dataManager.getCourseForResource(resource);
+            if (course == null || !course.getId().equals(courseId)) {
+                fail("Resource " + resource.getId() + " has the wrong parent course", null);
+            }
+        }
+        if (!actual.equals(expected)) {
+            fail("Course lists " + actual.size() + " resources, expected " + expected.size(), null);
+        }
+
+        LocalDate today = LocalDate.now();
+        Set<String> due = new HashSet<>();
+        for (Resource resource : dataManager.getAllResources()) {
+            if (resource.getNextReviewDate() != null && !resource.getNextReviewDate().isAfter(today)) {
+                due.add(resource.getId());
+            }
+        }
+        Set<String> indexedDue = new HashSet<>();
+        LocalDate previous = null;
+        for (Resource resource : dataManager.getDueResources(today)) {
+            indexedDue.add(resource.getId());
+            if (previous != null && resource.getNextReviewDate().isBefore(previous)) {
+                fail("Due list out of order: " + resource.getNextReviewDate() + " after " + previous, null);
+            }
+            previous = resource.getNextReviewDate();
+        }
+        if (!indexedDue.equals(due)) {
+            fail("Due index lists " + indexedDue.size() + " resources, " + due.size() + " are due", null);
+        }
+        if (dataManager.getDueResourceCount() != due.size()) {
+            fail("Due count " + dataManager.getDueResourceCount() + ", " + due.size() + " are due", null);
+        }
+
+        DataSnapshot snapshot = dataManager.getSnapshot();
+        Course frozen = snapshot.getCourse(EntityId.fromString(courseId));
+        Set<String> inSnapshot = new HashSet<>();
+        for (Resource resource : frozen.getResources()) {
+            inSnapshot.add(resource.getId());
+        }
+        if (!inSnapshot.equals(actual)) {
+            fail("Snapshot " + snapshot.getVersion() + " differs from the live data", null);
+        }
+    }
+
+    // --- Helpers ---
+
+    private void addResource(String title) {
+        Resource resource = new Resource(title, "", Resource.ResourceType.NOTE, "");
+        dataManager.addResourceToCourse(courseId, resource);
+        resourceIds.add(resource.getId());
+    }
+
+    private String randomResourceId(Random random) {
+        List<String> ids = resourceIds;
+        int size = ids.size();
+        try {
+            return size > 0 ? ids.get(random.nextInt(size)) : null;
+        } catch (IndexOutOfBoundsException e) { // Removed meanwhile
+            return null;
+        }
+    }
+
+    private void fail(String message, Throwable cause) {
+        failures.add(cause != null ? message + ": " + cause : message);
+        if (cause != null) {
+            cause.printStackTrace();
+        }
+    }
+}